@@ -0,0 +1,142 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.xcontent.ToXContentFragment;
+import org.elasticsearch.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Statistics of one of the Querqy caches of a node, or the sum of the statistics of several nodes.
+ */
+public class CacheStats implements Writeable, ToXContentFragment {
+
+    public static final CacheStats EMPTY = new CacheStats(0L, 0L, 0L, 0L, 0L);
+
+    // for caches that can't estimate the heap of their entries
+    public static final long UNKNOWN_SIZE = -1L;
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long entries;
+    // UNKNOWN_SIZE if the cache doesn't estimate its size
+    private final long estimatedSizeInBytes;
+
+    public CacheStats(final long hits, final long misses, final long evictions, final long entries,
+                      final long estimatedSizeInBytes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.entries = entries;
+        this.estimatedSizeInBytes = estimatedSizeInBytes;
+    }
+
+    public CacheStats(final StreamInput in) throws IOException {
+        hits = in.readVLong();
+        misses = in.readVLong();
+        evictions = in.readVLong();
+        entries = in.readVLong();
+        estimatedSizeInBytes = in.readZLong();
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        out.writeVLong(hits);
+        out.writeVLong(misses);
+        out.writeVLong(evictions);
+        out.writeVLong(entries);
+        out.writeZLong(estimatedSizeInBytes);
+    }
+
+    public CacheStats add(final CacheStats other) {
+        return new CacheStats(hits + other.hits, misses + other.misses, evictions + other.evictions,
+                entries + other.entries,
+                estimatedSizeInBytes == UNKNOWN_SIZE || other.estimatedSizeInBytes == UNKNOWN_SIZE
+                        ? UNKNOWN_SIZE : estimatedSizeInBytes + other.estimatedSizeInBytes);
+    }
+
+    /**
+     * @return The share of lookups that were answered from the cache, 0 if there weren't any lookups
+     */
+    public double getHitRate() {
+        final long lookups = hits + misses;
+        return lookups == 0L ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public XContentBuilder toXContent(final XContentBuilder builder, final Params params) throws IOException {
+        builder.field("hits", hits);
+        builder.field("misses", misses);
+        builder.field("hit_rate", getHitRate());
+        builder.field("evictions", evictions);
+        builder.field("entries", entries);
+        if (estimatedSizeInBytes != UNKNOWN_SIZE) {
+            builder.humanReadableField("estimated_size_in_bytes", "estimated_size",
+                    ByteSizeValue.ofBytes(estimatedSizeInBytes));
+        }
+        return builder;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return The estimated heap of the entries, or {@link #UNKNOWN_SIZE}
+     */
+    public long getEstimatedSizeInBytes() {
+        return estimatedSizeInBytes;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final CacheStats that = (CacheStats) o;
+        return hits == that.hits && misses == that.misses && evictions == that.evictions && entries == that.entries
+                && estimatedSizeInBytes == that.estimatedSizeInBytes;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(hits, misses, evictions, entries, estimatedSizeInBytes);
+    }
+}
@@ -19,13 +19,45 @@ package querqy.elasticsearch;
 
 import org.elasticsearch.common.cache.Cache;
 import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.cache.RemovalListener;
 import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.MappingLookup;
+import org.elasticsearch.index.query.SearchExecutionContext;
+
+import java.util.Map;
+import java.util.function.ToLongBiFunction;
 
 public class Caches {
 
     public static <K, V> Cache<K, V> buildCache(final TimeValue expireAfterWrite, final TimeValue expireAfterAccess) {
+        return buildCache(expireAfterWrite, expireAfterAccess, -1L, null, null);
+    }
+
+    /**
+     * Builds a cache.
+     *
+     * @param expireAfterWrite Expire entries after this time since they were written, disabled if not positive
+     * @param expireAfterAccess Expire entries after this time since they were last accessed, disabled if not positive
+     * @param maxWeight The maximum total weight of the entries, unbounded if negative
+     * @param weigher The weigher for maxWeight, or null to count entries
+     * @param removalListener Notified about removed entries, can be null
+     * @return The cache
+     */
+    public static <K, V> Cache<K, V> buildCache(final TimeValue expireAfterWrite, final TimeValue expireAfterAccess,
+                                                final long maxWeight, final ToLongBiFunction<K, V> weigher,
+                                                final RemovalListener<K, V> removalListener) {
 
         final CacheBuilder<K, V> builder = CacheBuilder.builder();
+        if (maxWeight >= 0) {
+            builder.setMaximumWeight(maxWeight);
+            if (weigher != null) {
+                builder.weigher(weigher);
+            }
+        }
+        if (removalListener != null) {
+            builder.removalListener(removalListener);
+        }
         if (expireAfterWrite.nanos() > 0) {
             builder.setExpireAfterWrite(expireAfterWrite);
         }
@@ -35,4 +67,25 @@ public class Caches {
         return builder.build();
     }
 
+    /**
+     * Checks whether the request defines runtime fields (runtime_mappings in the search request). These fields are not
+     * part of the index mapping and thus not covered by {@link SearchExecutionContext#mappingCacheKey()}, which is why
+     * anything that was built from the field types of such a request must not be cached.
+     *
+     * The check iterates over all fields of the context and is thus linear in the number of mapped fields.
+     *
+     * @param context The search execution context of the request
+     * @return true iff the request defines at least one runtime field
+     */
+    public static boolean hasRequestRuntimeFields(final SearchExecutionContext context) {
+        final MappingLookup mappingLookup = context.getMappingLookup();
+        for (final Map.Entry<String, MappedFieldType> field : context.getAllFields()) {
+            // request runtime fields are added to or shadow the field types of the mapping
+            if (mappingLookup == null || mappingLookup.getFieldType(field.getKey()) != field.getValue()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
 }
@@ -82,12 +82,24 @@ public class DismaxSearchEngineRequestAdapter implements LuceneSearchEngineReque
 
     private final QuerqyQueryBuilder queryBuilder;
     private final Map<String, Object> context = new HashMap<>();
+    private final TermQueryCache termQueryCache;
+    // created on first use and then used for all analysis of this request
+    private Analyzer queryAnalyzer = null;
 
     public DismaxSearchEngineRequestAdapter(final QuerqyQueryBuilder queryBuilder,
                                             final RewriteChain rewriteChain,
                                             final SearchExecutionContext shardContext,
                                             final InfoLogging infoLogging) {
+        this(queryBuilder, rewriteChain, shardContext, infoLogging, null);
+    }
+
+    public DismaxSearchEngineRequestAdapter(final QuerqyQueryBuilder queryBuilder,
+                                            final RewriteChain rewriteChain,
+                                            final SearchExecutionContext shardContext,
+                                            final InfoLogging infoLogging,
+                                            final TermQueryCache termQueryCache) {
         this.shardContext = shardContext;
+        this.termQueryCache = termQueryCache;
         this.rewriteChain = rewriteChain;
         this.queryBuilder = queryBuilder;
         this.infoLoggingContext = (infoLogging != null) ? new ESInfoLoggingContext(infoLogging, this) : null;
@@ -137,11 +149,18 @@ public class DismaxSearchEngineRequestAdapter implements LuceneSearchEngineReque
      *
      * <p>This will normally be an {@link Analyzer} that delegates to other Analyzers based on the given query fields.</p>
      *
+     * <p>The same instance is returned for all calls within a request. The analyzer doesn't hold any token stream
+     * components itself, these are reused from the search analyzers of the fields.</p>
+     *
      * @return The query analyzer.
      */
     @Override
     public Analyzer getQueryAnalyzer() {
-        return new MapperAnalyzerWrapper(mappedFieldType -> mappedFieldType.getTextSearchInfo().searchAnalyzer());
+        if (queryAnalyzer == null) {
+            queryAnalyzer = new MapperAnalyzerWrapper(
+                    mappedFieldType -> mappedFieldType.getTextSearchInfo().searchAnalyzer());
+        }
+        return queryAnalyzer;
     }
 
     /**
@@ -151,8 +170,7 @@ public class DismaxSearchEngineRequestAdapter implements LuceneSearchEngineReque
      */
     @Override
     public Optional<TermQueryCache> getTermQueryCache() {
-        // TODO
-        return Optional.empty();
+        return Optional.ofNullable(termQueryCache);
     }
 
     /**
@@ -36,6 +36,8 @@ import java.util.Set;
 
 public abstract class ESRewriterFactory {
 
+    public static final int DEFAULT_RAM_BYTES_PER_CONFIG_BYTE = 8;
+
     private static final Set<String> ALLOWED_CLASSES = loadAllowedClasses();
 
     private static Set<String> loadAllowedClasses() {
@@ -84,13 +86,76 @@ public abstract class ESRewriterFactory {
 
     public abstract List<String> validateConfiguration(final Map<String, Object> config);
 
+    /**
+     * <p>Validates the configuration like {@link #validateConfiguration(Map)} and configures this factory in the same
+     * step if that doesn't cost more than the validation alone.</p>
+     *
+     * <p>Factories that have to build the rewriter to validate the configuration should override this method to
+     * configure themselves instead of building the rewriter twice, and override {@link #isConfigured()}. The node
+     * that validated the configuration can then use this instance without calling {@link #configure(Map)}. The
+     * default implementation only validates.</p>
+     *
+     * @param config The rewriter configuration
+     * @return The validation errors, null or empty if the configuration is valid
+     */
+    public List<String> validateAndMaybeConfigure(final Map<String, Object> config) {
+        return validateConfiguration(config);
+    }
+
+    /**
+     * @return true if this factory has been configured, only needs to be overridden by factories that override
+     * {@link #validateAndMaybeConfigure(Map)}
+     */
+    public boolean isConfigured() {
+        return false;
+    }
+
     public abstract RewriterFactory createRewriterFactory(final IndexShard indexShard) throws ElasticsearchException;
 
+    /**
+     * <p>Does the {@link RewriterFactory} returned by {@link #createRewriterFactory(IndexShard)} depend on the shard?</p>
+     *
+     * <p>If this method returns false, {@link #createRewriterFactory(IndexShard)} will be called only once per node
+     * (with a null shard) and the resulting RewriterFactory will be shared across all shards and indices of the node.
+     * </p>
+     *
+     * @return true if a RewriterFactory must be created per shard, false otherwise
+     */
+    public boolean isShardDependent() {
+        return true;
+    }
+
+    /**
+     * <p>Estimates the heap that this factory will use once it has been configured. The estimate is charged to the
+     * Querqy circuit breaker before {@link #configure(Map)} is called.</p>
+     *
+     * <p>The default implementation assumes {@value #DEFAULT_RAM_BYTES_PER_CONFIG_BYTE} bytes of heap per byte of the
+     * stored configuration.</p>
+     *
+     * @param configSizeInBytes The size of the serialized rewriter configuration after decompression
+     * @return The estimated heap usage in bytes
+     */
+    public long estimateRamBytesUsed(final long configSizeInBytes) {
+        return configSizeInBytes * DEFAULT_RAM_BYTES_PER_CONFIG_BYTE;
+    }
+
     public String getRewriterId() {
         return rewriterId;
     }
 
     public static ESRewriterFactory loadConfiguredInstance(final LoadRewriterConfig instanceDescription) {
+        final ESRewriterFactory factory = loadInstance(instanceDescription);
+        factory.configure(instanceDescription.getConfig());
+        return factory;
+    }
+
+    /**
+     * Creates the factory described by the stored rewriter but doesn't configure it yet.
+     *
+     * @param instanceDescription The stored rewriter
+     * @return The factory
+     */
+    public static ESRewriterFactory loadInstance(final LoadRewriterConfig instanceDescription) {
 
         final String classField = instanceDescription.getRewriterClassName();
         if (classField == null) {
@@ -106,12 +171,7 @@ public abstract class ESRewriterFactory {
 
         checkClassAllowed(className);
 
-        final ESRewriterFactory factory = builder().rewriterId(instanceDescription.getRewriterId())
-                .className(className).loadFactory();
-
-        factory.configure(instanceDescription.getConfig());
-        return factory;
-
+        return builder().rewriterId(instanceDescription.getRewriterId()).className(className).loadFactory();
 
     }
 
@@ -23,33 +23,48 @@ import static querqy.elasticsearch.rewriterstore.Constants.SETTINGS_QUERQY_INDEX
 
 import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.IndexScopedSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.settings.SettingsFilter;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.features.NodeFeature;
 
 import org.elasticsearch.index.IndexModule;
 import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.indices.breaker.BreakerSettings;
 import org.elasticsearch.plugins.ActionPlugin;
+import org.elasticsearch.plugins.CircuitBreakerPlugin;
 import org.elasticsearch.plugins.Plugin;
 import org.elasticsearch.plugins.SearchPlugin;
 import org.elasticsearch.rest.RestController;
 import org.elasticsearch.rest.RestHandler;
+import org.elasticsearch.threadpool.ExecutorBuilder;
+import org.elasticsearch.threadpool.FixedExecutorBuilder;
 import querqy.elasticsearch.infologging.Log4jSink;
 import querqy.elasticsearch.query.QuerqyQueryBuilder;
+import querqy.elasticsearch.rewriterstore.BulkPutRewriterAction;
 import querqy.elasticsearch.rewriterstore.DeleteRewriterAction;
 import querqy.elasticsearch.rewriterstore.NodesClearRewriterCacheAction;
+import querqy.elasticsearch.rewriterstore.NodesQuerqyStatsAction;
 import querqy.elasticsearch.rewriterstore.NodesReloadRewriterAction;
+import querqy.elasticsearch.rewriterstore.PutRewriterAliasAction;
+import querqy.elasticsearch.rewriterstore.RestBulkPutRewriterAction;
 import querqy.elasticsearch.rewriterstore.RestDeleteRewriterAction;
 import querqy.elasticsearch.rewriterstore.RestPutRewriterAction;
+import querqy.elasticsearch.rewriterstore.RestPutRewriterAliasAction;
+import querqy.elasticsearch.rewriterstore.RestQuerqyStatsAction;
 import querqy.elasticsearch.rewriterstore.PutRewriterAction;
+import querqy.elasticsearch.rewriterstore.TransportBulkPutRewriterAction;
 import querqy.elasticsearch.rewriterstore.TransportDeleteRewriterAction;
 import querqy.elasticsearch.rewriterstore.TransportNodesClearRewriterCacheAction;
+import querqy.elasticsearch.rewriterstore.TransportNodesQuerqyStatsAction;
 import querqy.elasticsearch.rewriterstore.TransportNodesReloadRewriterAction;
 import querqy.elasticsearch.rewriterstore.TransportPutRewriterAction;
+import querqy.elasticsearch.rewriterstore.TransportPutRewriterAliasAction;
 
 import java.util.Arrays;
 import java.util.Collection;
@@ -58,12 +73,20 @@ import java.util.List;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
-public class QuerqyPlugin extends Plugin implements SearchPlugin, ActionPlugin {
+public class QuerqyPlugin extends Plugin implements SearchPlugin, ActionPlugin, CircuitBreakerPlugin {
+
+    /**
+     * The thread pool for reloading rewriters on a node
+     */
+    public static final String RELOAD_THREAD_POOL_NAME = "querqy_reload";
+
+    private final RewriterRegistry rewriterRegistry;
     private final RewriterShardContexts rewriterShardContexts;
     private final QuerqyProcessor querqyProcessor;
 
     public QuerqyPlugin(final Settings settings) {
-        rewriterShardContexts = new RewriterShardContexts(settings);
+        rewriterRegistry = new RewriterRegistry(settings);
+        rewriterShardContexts = new RewriterShardContexts(settings, rewriterRegistry);
         querqyProcessor = new QuerqyProcessor(rewriterShardContexts, new Log4jSink());
     }
 
@@ -96,26 +119,66 @@ public class QuerqyPlugin extends Plugin implements SearchPlugin, ActionPlugin {
     	    final Supplier<DiscoveryNodes> nodesInCluster,
     	    final Predicate<NodeFeature> clusterSupportsFeature  // This parameter was missing
     	) {
-	    return Arrays.asList(new RestPutRewriterAction(), new RestDeleteRewriterAction());
+	    return Arrays.asList(new RestPutRewriterAction(), new RestBulkPutRewriterAction(),
+                new RestPutRewriterAliasAction(), new RestDeleteRewriterAction(), new RestQuerqyStatsAction());
 	}
 
     @Override
     public List<ActionHandler> getActions() {
         return List.of(new ActionHandler(PutRewriterAction.INSTANCE, TransportPutRewriterAction.class),
+                new ActionHandler(BulkPutRewriterAction.INSTANCE, TransportBulkPutRewriterAction.class),
+                new ActionHandler(PutRewriterAliasAction.INSTANCE, TransportPutRewriterAliasAction.class),
                 new ActionHandler(NodesReloadRewriterAction.INSTANCE, TransportNodesReloadRewriterAction.class),
                 new ActionHandler(DeleteRewriterAction.INSTANCE, TransportDeleteRewriterAction.class),
-                new ActionHandler(NodesClearRewriterCacheAction.INSTANCE, TransportNodesClearRewriterCacheAction.class));
+                new ActionHandler(NodesClearRewriterCacheAction.INSTANCE, TransportNodesClearRewriterCacheAction.class),
+                new ActionHandler(NodesQuerqyStatsAction.INSTANCE, TransportNodesQuerqyStatsAction.class));
     }
 
     @Override
     public Collection<Object> createComponents(PluginServices services) {
-        return Arrays.asList(rewriterShardContexts, querqyProcessor);
+        return Arrays.asList(rewriterRegistry, rewriterShardContexts, querqyProcessor);
     }
     
+    @Override
+    public List<ExecutorBuilder<?>> getExecutorBuilders(final Settings settings) {
+        final int size = Math.max(1, Math.min(4, EsExecutors.allocatedProcessors(settings) / 2));
+        return Collections.singletonList(new FixedExecutorBuilder(settings, RELOAD_THREAD_POOL_NAME, size, 1000,
+                "thread_pool." + RELOAD_THREAD_POOL_NAME, EsExecutors.TaskTrackingConfig.DO_NOT_TRACK));
+    }
+
+    @Override
+    public BreakerSettings getCircuitBreaker(final Settings settings) {
+        return new BreakerSettings(RewriterRegistry.CIRCUIT_BREAKER_NAME,
+                RewriterRegistry.CIRCUIT_BREAKER_LIMIT.get(settings).getBytes(),
+                RewriterRegistry.CIRCUIT_BREAKER_OVERHEAD.get(settings),
+                CircuitBreaker.Type.MEMORY,
+                CircuitBreaker.Durability.PERMANENT);
+    }
+
+    @Override
+    public void setCircuitBreaker(final CircuitBreaker circuitBreaker) {
+        rewriterRegistry.setCircuitBreaker(circuitBreaker);
+    }
+
     @Override
     public List<Setting<?>> getSettings() {
-        return Collections.singletonList(Setting.intSetting(SETTINGS_QUERQY_INDEX_NUM_REPLICAS, 1, 0,
-                Setting.Property.NodeScope));
+        return Arrays.asList(
+                Setting.intSetting(SETTINGS_QUERQY_INDEX_NUM_REPLICAS, 1, 0, Setting.Property.NodeScope),
+                RewriterRegistry.CACHE_EXPIRE_AFTER_WRITE,
+                RewriterRegistry.CACHE_EXPIRE_AFTER_READ,
+                RewriterRegistry.CACHE_REFRESH_AFTER_WRITE,
+                RewriterRegistry.CACHE_MAX_BYTES,
+                RewriterRegistry.CACHE_PINNED,
+                RewriterRegistry.MAX_RECENTLY_USED,
+                RewrittenQueryCache.MAX_BYTES,
+                RewrittenQueryCache.EXPIRE_AFTER_READ,
+                ShardQueryCache.MAX_BYTES_PER_SHARD,
+                ShardQueryCache.MAX_BYTES_PER_NODE,
+                ShardTermQueryCache.MAX_ENTRIES_PER_SHARD,
+                RewriterRegistry.CIRCUIT_BREAKER_LIMIT,
+                RewriterRegistry.CIRCUIT_BREAKER_OVERHEAD,
+                RewriterShardContexts.PRELOAD_REWRITERS,
+                RewriterShardContexts.INDEX_PRELOAD_REWRITERS);
 
     }
 }
@@ -20,6 +20,7 @@ package querqy.elasticsearch;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Query;
+import org.elasticsearch.index.query.QueryRewriteContext;
 import org.elasticsearch.index.query.SearchExecutionContext;
 import querqy.elasticsearch.infologging.LogPayloadType;
 import querqy.elasticsearch.infologging.SingleSinkInfoLogging;
@@ -51,24 +52,64 @@ public class QuerqyProcessor {
         this.infoLoggingSink = infoLoggingSink;
     }
 
+    /**
+     * Registers an asynchronous action with the rewrite context that loads all rewriters of the query which are not
+     * yet available on this node. Does nothing if all rewriters are loaded already.
+     *
+     * @param queryBuilder The query
+     * @param queryRewriteContext The rewrite context of the data node rewrite phase
+     */
+    public void registerRewriterLoading(final QuerqyQueryBuilder queryBuilder,
+                                        final QueryRewriteContext queryRewriteContext) {
+
+        final List<Rewriter> rewriters = queryBuilder.getRewriters();
+        if (rewriters == null || rewriters.isEmpty()) {
+            return;
+        }
+
+        final RewriterRegistry rewriterRegistry = rewriterShardContexts.getRewriterRegistry();
+        final List<String> names = rewriters.stream().map(Rewriter::getName).collect(Collectors.toList());
+        final RewriterAliases aliases = rewriterRegistry.getAliases();
+
+        if (aliases == null) {
+            // resolving the names requires the aliases, which haven't been loaded on this node yet
+            queryRewriteContext.registerAsyncAction((client, listener) ->
+                    rewriterRegistry.resolveAliases(names, client, listener.delegateFailureAndWrap(
+                            (l, rewriterIds) -> rewriterRegistry.loadFactories(
+                                    rewriterRegistry.getMissingRewriterIds(rewriterIds), client,
+                                    l.map(ignored -> null)))));
+            return;
+        }
+
+        final Set<String> missingRewriterIds = rewriterRegistry.getMissingRewriterIds(
+                names.stream().map(aliases::resolve).collect(Collectors.toList()));
+
+        if (!missingRewriterIds.isEmpty()) {
+            queryRewriteContext.registerAsyncAction((client, listener) ->
+                    rewriterRegistry.loadFactories(missingRewriterIds, client, listener.map(ignored -> null)));
+        }
+
+    }
+
     public Query parseQuery(final QuerqyQueryBuilder queryBuilder, final SearchExecutionContext context)
             throws LuceneSearchEngineRequestAdapter.SyntaxException {
 
         final List<Rewriter> rewriters = queryBuilder.getRewriters();
 
         final RewriteChain rewriteChain;
+        final RewriteChainAndLogging rewriteChainAndLogging;
         final Set<String> rewritersEnabledForLogging;
         if (rewriters == null || rewriters.isEmpty()) {
 
             rewriteChain = EMPTY_REWRITE_CHAIN;
+            rewriteChainAndLogging = null;
             rewritersEnabledForLogging = Collections.emptySet();
 
         } else {
 
-            final RewriteChainAndLogging rewriteChainAndLogging = rewriterShardContexts.getRewriteChain(
+            rewriteChainAndLogging = rewriterShardContexts.getRewriteChain(
                     rewriters.stream().map(Rewriter::getName).collect(Collectors.toList()), context);
 
-            rewriteChain = rewriteChainAndLogging.rewriteChain;
             final InfoLoggingSpec infoLoggingSpec = queryBuilder.getInfoLoggingSpec();
 
             if ((infoLoggingSpec != null) && (infoLoggingSpec.getPayloadType() != LogPayloadType.NONE)
@@ -81,13 +122,44 @@ public class QuerqyProcessor {
                 rewritersEnabledForLogging = Collections.emptySet();
             }
 
+            // info is logged while rewriting, so we can only take the rewritten query from the cache without logging
+            rewriteChain = rewritersEnabledForLogging.isEmpty()
+                    ? rewriterShardContexts.getRewriterRegistry().getRewrittenQueryCache()
+                            .cachingRewriteChain(rewriteChainAndLogging, queryBuilder)
+                    : rewriteChainAndLogging.rewriteChain;
+
         }
 
         final InfoLogging infoLogging = rewritersEnabledForLogging.isEmpty()
                 ? null : new SingleSinkInfoLogging(infoLoggingSink, rewritersEnabledForLogging);
 
-        final DismaxSearchEngineRequestAdapter requestAdapter =
-                new DismaxSearchEngineRequestAdapter(queryBuilder, rewriteChain, context, infoLogging);
+        // a cached query would skip info logging
+        final ShardQueryCache queryCache = infoLogging == null ? rewriterShardContexts.getQueryCache(context) : null;
+        final ShardQueryCache.Key cacheKey = queryCache != null
+                ? queryCache.createKey(queryBuilder, rewriteChainAndLogging, context) : null;
+        if (cacheKey != null) {
+            final Query cached = queryCache.get(cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        final Query query = buildQuery(queryBuilder, rewriteChain, context, infoLogging);
+
+        // the query might depend on the request if building it made the context non-cacheable
+        if (cacheKey != null && context.isCacheable()) {
+            queryCache.put(cacheKey, query);
+        }
+        return query;
+
+    }
+
+    private Query buildQuery(final QuerqyQueryBuilder queryBuilder, final RewriteChain rewriteChain,
+                             final SearchExecutionContext context, final InfoLogging infoLogging)
+            throws LuceneSearchEngineRequestAdapter.SyntaxException {
+
+        final DismaxSearchEngineRequestAdapter requestAdapter = new DismaxSearchEngineRequestAdapter(queryBuilder,
+                rewriteChain, context, infoLogging, rewriterShardContexts.getTermQueryCache(context));
 
         final QueryParsingController controller = new QueryParsingController(requestAdapter);
 
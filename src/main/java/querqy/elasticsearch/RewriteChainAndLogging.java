@@ -19,15 +19,20 @@ package querqy.elasticsearch;
 
 import querqy.rewrite.RewriteChain;
 
+import java.util.List;
 import java.util.Set;
 
 public class RewriteChainAndLogging {
 
     public final RewriteChain rewriteChain;
     public final Set<String> rewritersEnabledForLogging;
+    // the rewriters of the chain in the versions that were loaded when the chain was created
+    public final List<RewriterFactoryAndLogging> rewriters;
 
-    public RewriteChainAndLogging(final RewriteChain rewriteChain, final Set<String> rewritersEnabledForLogging) {
+    public RewriteChainAndLogging(final RewriteChain rewriteChain, final Set<String> rewritersEnabledForLogging,
+                                  final List<RewriterFactoryAndLogging> rewriters) {
         this.rewriteChain = rewriteChain;
         this.rewritersEnabledForLogging = rewritersEnabledForLogging;
+        this.rewriters = rewriters;
     }
 }
@@ -0,0 +1,98 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch;
+
+import org.elasticsearch.action.get.GetResponse;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>An immutable snapshot of the rewriter aliases. An alias is a rewriter name that can be used in queries and that
+ * points to a concrete rewriter id, for example <code>products_rules</code> pointing to
+ * <code>products_rules_v2</code>.</p>
+ *
+ * <p>All aliases are stored in a single document in the Querqy index. Nodes keep the latest version that they have
+ * seen so that switching an alias only means replacing this snapshot.</p>
+ */
+public class RewriterAliases {
+
+    public static final String PROP_TYPE = "type";
+    public static final String PROP_ALIASES = "aliases";
+    public static final String TYPE = "aliases";
+
+    /**
+     * The aliases before the aliases document has been created
+     */
+    public static final RewriterAliases EMPTY = new RewriterAliases(-1L, Collections.emptyMap());
+
+    private final long version;
+    private final Map<String, String> aliases;
+
+    public RewriterAliases(final long version, final Map<String, String> aliases) {
+        this.version = version;
+        this.aliases = Collections.unmodifiableMap(new HashMap<>(aliases));
+    }
+
+    /**
+     * Creates the aliases from the aliases document.
+     *
+     * @param response The response of fetching the aliases document
+     * @return The aliases, {@link #EMPTY} if the document doesn't exist
+     */
+    @SuppressWarnings("unchecked")
+    public static RewriterAliases fromDocument(final GetResponse response) {
+        if (!response.isExists()) {
+            return EMPTY;
+        }
+        final Map<String, Object> source = response.getSource();
+        if (!TYPE.equals(source.get(PROP_TYPE))) {
+            throw new IllegalStateException("Not a rewriter aliases document: " + response.getId());
+        }
+        final Map<String, Object> aliasesObj = (Map<String, Object>) source.get(PROP_ALIASES);
+        final Map<String, String> aliases = new HashMap<>();
+        if (aliasesObj != null) {
+            aliasesObj.forEach((alias, rewriterId) -> aliases.put(alias, (String) rewriterId));
+        }
+        return new RewriterAliases(response.getVersion(), aliases);
+    }
+
+    /**
+     * @param name A rewriter name as it is used in a query
+     * @return The rewriter id the name points to if the name is an alias, otherwise the name itself
+     */
+    public String resolve(final String name) {
+        return aliases.getOrDefault(name, name);
+    }
+
+    public boolean isAlias(final String name) {
+        return aliases.containsKey(name);
+    }
+
+    /**
+     * @return The document version, -1 if the aliases document doesn't exist
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public Map<String, String> getAliases() {
+        return aliases;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch;
+
+import org.apache.lucene.util.Accountable;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.hash.MessageDigests;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.seqno.SequenceNumbers;
+import querqy.rewrite.RewriterFactory;
+
+/**
+ * A configured rewriter as it is held in the node-wide {@link RewriterRegistry}. The same instance is shared by all
+ * shards on the node.
+ */
+public class RewriterFactoryAndLogging implements Accountable {
+
+    public final String rewriterId;
+    public final ESRewriterFactory esRewriterFactory;
+    public final boolean loggingEnabled;
+    public final long version;
+    public final long seqNo;
+    public final long primaryTerm;
+    // SHA-256 of the rewriter document source, null if unknown
+    public final String sourceDigest;
+    private final long ramBytesUsed;
+    // System.nanoTime() when this version was loaded or last confirmed to be current
+    final long loadTimeNanos;
+
+    // null if the RewriterFactory depends on the shard
+    private final RewriterFactory sharedRewriterFactory;
+
+    public RewriterFactoryAndLogging(final String rewriterId, final ESRewriterFactory esRewriterFactory,
+                                     final boolean loggingEnabled, final long version) {
+        this(rewriterId, esRewriterFactory, loggingEnabled, version, SequenceNumbers.UNASSIGNED_SEQ_NO,
+                SequenceNumbers.UNASSIGNED_PRIMARY_TERM, null, 0L);
+    }
+
+    public RewriterFactoryAndLogging(final String rewriterId, final ESRewriterFactory esRewriterFactory,
+                                     final boolean loggingEnabled, final long version, final long seqNo,
+                                     final long primaryTerm, final String sourceDigest, final long ramBytesUsed) {
+        this(rewriterId, esRewriterFactory, loggingEnabled, version, seqNo, primaryTerm, sourceDigest, ramBytesUsed,
+                esRewriterFactory.isShardDependent() ? null : esRewriterFactory.createRewriterFactory(null));
+    }
+
+    private RewriterFactoryAndLogging(final String rewriterId, final ESRewriterFactory esRewriterFactory,
+                                      final boolean loggingEnabled, final long version, final long seqNo,
+                                      final long primaryTerm, final String sourceDigest, final long ramBytesUsed,
+                                      final RewriterFactory sharedRewriterFactory) {
+        this.rewriterId = rewriterId;
+        this.esRewriterFactory = esRewriterFactory;
+        this.loggingEnabled = loggingEnabled;
+        this.version = version;
+        this.seqNo = seqNo;
+        this.primaryTerm = primaryTerm;
+        this.sourceDigest = sourceDigest;
+        this.ramBytesUsed = ramBytesUsed;
+        this.sharedRewriterFactory = sharedRewriterFactory;
+        this.loadTimeNanos = System.nanoTime();
+    }
+
+    /**
+     * Is this rewriter loaded from the same document source as the given response? This is the case if the response
+     * refers to the same sequence number and primary term or if the source has the same content.
+     *
+     * @param response The response of fetching the rewriter document
+     * @return true iff the document source is unchanged
+     */
+    public boolean hasSameSource(final GetResponse response) {
+        if (!response.isExists()) {
+            return false;
+        }
+        if (seqNo != SequenceNumbers.UNASSIGNED_SEQ_NO && seqNo == response.getSeqNo()
+                && primaryTerm == response.getPrimaryTerm()) {
+            return true;
+        }
+        return sourceDigest != null && sourceDigest.equals(sourceDigest(response));
+    }
+
+    /**
+     * Get a copy of this rewriter that refers to the document version of the response but shares the compiled
+     * rewriter with this instance.
+     *
+     * @param response The response of fetching the rewriter document
+     * @return The copy
+     */
+    public RewriterFactoryAndLogging withDocumentVersion(final GetResponse response) {
+        return new RewriterFactoryAndLogging(rewriterId, esRewriterFactory, loggingEnabled, response.getVersion(),
+                response.getSeqNo(), response.getPrimaryTerm(), sourceDigest, ramBytesUsed, sharedRewriterFactory);
+    }
+
+    /**
+     * @return The estimated heap usage of the node-wide rewriter, as returned by
+     * {@link ESRewriterFactory#estimateRamBytesUsed(long)} when it was loaded
+     */
+    @Override
+    public long ramBytesUsed() {
+        return ramBytesUsed;
+    }
+
+    static String sourceDigest(final GetResponse response) {
+        return sourceDigest(response.getSourceAsBytesRef());
+    }
+
+    /**
+     * @param source The source of a rewriter document
+     * @return The digest that identifies the source
+     */
+    public static String sourceDigest(final BytesReference source) {
+        return MessageDigests.toHexString(MessageDigests.digest(source, MessageDigests.sha256()));
+    }
+
+    public boolean isShardDependent() {
+        return sharedRewriterFactory == null;
+    }
+
+    /**
+     * Get the {@link RewriterFactory} for a shard. Returns the node-wide instance unless the factory is shard-dependent.
+     *
+     * @param indexShard The shard
+     * @return The RewriterFactory to be used for the shard
+     */
+    public RewriterFactory getRewriterFactory(final IndexShard indexShard) {
+        return sharedRewriterFactory != null
+                ? sharedRewriterFactory : esRewriterFactory.createRewriterFactory(indexShard);
+    }
+
+}
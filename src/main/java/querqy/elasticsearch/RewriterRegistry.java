@@ -0,0 +1,1055 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch;
+
+import static querqy.elasticsearch.rewriterstore.Constants.QUERQY_INDEX_NAME;
+import static querqy.elasticsearch.rewriterstore.Constants.REWRITER_ALIASES_ID;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.ResourceNotFoundException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRunnable;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.RefCountingListener;
+import org.elasticsearch.action.support.SubscribableListener;
+import org.elasticsearch.action.support.ThreadedActionListener;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.client.internal.Client;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.cache.RemovalNotification;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.IndexNotFoundException;
+import org.elasticsearch.indices.InvalidTypeNameException;
+import org.elasticsearch.injection.guice.Inject;
+import org.elasticsearch.threadpool.ThreadPool;
+import querqy.elasticsearch.rewriterstore.LoadRewriterConfig;
+import querqy.elasticsearch.rewriterstore.RewriterConfigMapping;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Node-wide registry of configured rewriters. Rewriters are loaded from the Querqy index once per node and shared by
+ * all shards and indices on that node.
+ */
+public class RewriterRegistry {
+
+    public static final Setting<TimeValue> CACHE_EXPIRE_AFTER_WRITE = Setting.timeSetting(
+            "querqy.caches.rewriter.expire_after_write",
+            TimeValue.timeValueNanos(0), // do not expire by default
+            TimeValue.timeValueNanos(0),
+            Setting.Property.NodeScope);
+
+    public static final Setting<TimeValue> CACHE_EXPIRE_AFTER_READ = Setting.timeSetting(
+            "querqy.caches.rewriter.expire_after_read",
+            TimeValue.timeValueNanos(0), // do not expire by default
+            TimeValue.timeValueNanos(0),
+            Setting.Property.NodeScope);
+
+    /**
+     * If set, a rewriter that was loaded longer ago than this interval is reloaded in the background on its next use.
+     * Queries keep using the loaded version until the reload has finished. If the reload fails, the loaded version is
+     * kept and the reload is retried after another interval.
+     */
+    public static final Setting<TimeValue> CACHE_REFRESH_AFTER_WRITE = Setting.timeSetting(
+            "querqy.caches.rewriter.refresh_after_write",
+            TimeValue.timeValueNanos(0), // do not refresh by default
+            TimeValue.timeValueNanos(0),
+            Setting.Property.NodeScope);
+
+    /**
+     * The maximum estimated heap of the rewriters in the cache, unbounded if -1. Pinned rewriters don't count towards
+     * this limit. Rewriters that are larger than the limit can only be used if they are pinned.
+     */
+    public static final Setting<ByteSizeValue> CACHE_MAX_BYTES = Setting.byteSizeSetting(
+            "querqy.caches.rewriter.max_bytes",
+            ByteSizeValue.MINUS_ONE,
+            Setting.Property.NodeScope);
+
+    /**
+     * Rewriters that will never be evicted or expire from the cache
+     */
+    public static final Setting<List<String>> CACHE_PINNED = Setting.stringListSetting(
+            "querqy.caches.rewriter.pinned",
+            Setting.Property.NodeScope);
+
+    /**
+     * The number of most recently used rewriter ids that we remember per node so that we can preload them when a shard
+     * starts. Set to 0 to disable.
+     */
+    public static final Setting<Integer> MAX_RECENTLY_USED = Setting.intSetting(
+            "querqy.preload.max_recently_used",
+            32,
+            0,
+            Setting.Property.NodeScope);
+
+    public static final String CIRCUIT_BREAKER_NAME = "querqy";
+
+    /**
+     * The heap that loaded rewriters may use on a node, as estimated by {@link ESRewriterFactory#estimateRamBytesUsed(long)}
+     */
+    public static final Setting<ByteSizeValue> CIRCUIT_BREAKER_LIMIT = Setting.memorySizeSetting(
+            "breaker." + CIRCUIT_BREAKER_NAME + ".limit",
+            "10%",
+            Setting.Property.Dynamic,
+            Setting.Property.NodeScope);
+
+    public static final Setting<Double> CIRCUIT_BREAKER_OVERHEAD = Setting.doubleSetting(
+            "breaker." + CIRCUIT_BREAKER_NAME + ".overhead",
+            1.0D,
+            0.0D,
+            Setting.Property.Dynamic,
+            Setting.Property.NodeScope);
+
+    private static final Logger LOGGER = LogManager.getLogger(RewriterRegistry.class);
+
+    final Cache<String, RewriterFactoryAndLogging> factories;
+
+    // pinned rewriters are kept outside of the cache so that they can't be evicted
+    private final Set<String> pinnedRewriterIds;
+    final Map<String, RewriterFactoryAndLogging> pinnedFactories;
+
+    private final long maxBytes;
+
+    // rewriters that were evicted recently, used to detect cache thrashing
+    private final Cache<String, Boolean> recentlyEvicted;
+    private final LongAdder thrashingLoads = new LongAdder();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadTimeNanos = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // null if we don't track recently used rewriters
+    private final Cache<String, Boolean> recentlyUsed;
+
+    // rewriters that are currently being loaded asynchronously
+    private final Map<String, SubscribableListener<RewriterFactoryAndLogging>> pendingLoads;
+
+    private final Object publishMutex = new Object();
+
+    // factories that were configured while their definition was validated on this node, by rewriter id
+    private final Cache<String, ValidatedFactory> validatedFactories;
+    // only nodes that hold data load rewriters, other nodes would never use a validated factory
+    private final boolean keepValidatedFactories;
+
+    private final long refreshAfterWriteNanos;
+    // rewriters that are currently being refreshed in the background
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    // System.nanoTime() of the last failed refresh per rewriter
+    private final Map<String, Long> failedRefreshes = new ConcurrentHashMap<>();
+    private volatile Refresher refresher;
+
+    // null until the rewriter aliases have been loaded on this node
+    private volatile LoadedAliases aliases;
+    private final long aliasesExpireAfterWriteNanos;
+    // true while the aliases are being refreshed in the background
+    private final AtomicBoolean refreshingAliases = new AtomicBoolean();
+    // System.nanoTime() of the last failed refresh of the aliases, null if it didn't fail
+    private volatile Long failedAliasesRefresh;
+
+    private final RewrittenQueryCache rewrittenQueries;
+
+    private ThreadPool threadPool;
+
+    private volatile CircuitBreaker circuitBreaker = new NoopCircuitBreaker(CIRCUIT_BREAKER_NAME);
+
+    public RewriterRegistry(final Settings settings) {
+        maxBytes = CACHE_MAX_BYTES.get(settings).getBytes();
+        factories = Caches.buildCache(CACHE_EXPIRE_AFTER_WRITE.get(settings), CACHE_EXPIRE_AFTER_READ.get(settings),
+                maxBytes, (rewriterId, factoryAndLogging) -> Math.max(1L, factoryAndLogging.ramBytesUsed()),
+                notification -> {
+                    circuitBreaker.addWithoutBreaking(-notification.getValue().ramBytesUsed());
+                    if (notification.getRemovalReason() == RemovalNotification.RemovalReason.EVICTED) {
+                        evictions.increment();
+                        recentlyEvicted.put(notification.getKey(), Boolean.TRUE);
+                        rewrittenQueries.invalidateRewriter(notification.getKey());
+                    }
+                });
+        recentlyEvicted = CacheBuilder.<String, Boolean>builder().setMaximumWeight(1000).build();
+        validatedFactories = CacheBuilder.<String, ValidatedFactory>builder()
+                .setExpireAfterWrite(TimeValue.timeValueMinutes(1)).setMaximumWeight(32)
+                .removalListener(notification -> circuitBreaker.addWithoutBreaking(
+                        -notification.getValue().ramBytesUsed))
+                .build();
+        keepValidatedFactories = DiscoveryNode.canContainData(settings);
+        pinnedRewriterIds = Set.copyOf(CACHE_PINNED.get(settings));
+        pinnedFactories = new ConcurrentHashMap<>();
+        pendingLoads = new ConcurrentHashMap<>();
+        refreshAfterWriteNanos = CACHE_REFRESH_AFTER_WRITE.get(settings).nanos();
+        aliasesExpireAfterWriteNanos = CACHE_EXPIRE_AFTER_WRITE.get(settings).nanos();
+        rewrittenQueries = new RewrittenQueryCache(settings);
+
+        final int maxRecentlyUsed = MAX_RECENTLY_USED.get(settings);
+        recentlyUsed = maxRecentlyUsed > 0
+                ? CacheBuilder.<String, Boolean>builder().setMaximumWeight(maxRecentlyUsed).build()
+                : null;
+    }
+
+    /**
+     * Get a rewriter, loading it if it isn't loaded yet. Concurrent requests for a missing rewriter wait for a single
+     * load. Requests for other rewriters are never blocked.
+     *
+     * @param rewriterId The rewriter id
+     * @param client The client for fetching the rewriter configuration
+     * @return The rewriter
+     */
+    public RewriterFactoryAndLogging getFactory(final String rewriterId, final Client client) {
+        markUsed(rewriterId);
+        final RewriterFactoryAndLogging factoryAndLogging = getLoadedFactory(rewriterId);
+        if (factoryAndLogging != null) {
+            hits.increment();
+            maybeRefresh(factoryAndLogging, client);
+            return factoryAndLogging;
+        }
+        misses.increment();
+        if (isPinned(rewriterId)) {
+            publish(fetchFactory(rewriterId, client));
+            return getLoadedFactory(rewriterId);
+        }
+        try {
+            return factories.computeIfAbsent(rewriterId, id -> {
+                final RewriterFactoryAndLogging loaded = fetchFactory(id, client);
+                checkThrashing(loaded);
+                return loaded;
+            });
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ElasticsearchException("Could not load rewriter " + rewriterId, cause);
+        }
+    }
+
+    /**
+     * Resolve a rewriter name that was used in a query to a rewriter id. This never blocks: the aliases must have been
+     * loaded on this node already, which {@link #resolveAliases(Collection, Client, ActionListener)} takes care of in
+     * the rewrite phase of the query. Aliases that expired since then are still used. They are refreshed in the
+     * background if they are due for a refresh.
+     *
+     * @param name The rewriter name
+     * @param client The client for refreshing the aliases
+     * @return The rewriter id the name points to if it is an alias, otherwise the name itself
+     * @throws IllegalStateException if the aliases haven't been loaded on this node
+     */
+    public String resolveLoadedAlias(final String name, final Client client) {
+        final LoadedAliases current = aliases;
+        if (current == null) {
+            throw new IllegalStateException("Rewriter aliases are not loaded on this node, cannot resolve rewriter "
+                    + name);
+        }
+        maybeRefreshAliases(current, client);
+        return current.aliases.resolve(name);
+    }
+
+    /**
+     * Resolve rewriter names without blocking the calling thread. The rewriter aliases are fetched if they aren't
+     * loaded yet or if they have expired.
+     *
+     * @param names The rewriter names
+     * @param client The client for fetching the aliases
+     * @param listener The listener to notify with the rewriter ids, in the order of the names
+     */
+    public void resolveAliases(final Collection<String> names, final Client client,
+                               final ActionListener<List<String>> listener) {
+        final RewriterAliases current = getAliases();
+        if (current != null) {
+            listener.onResponse(names.stream().map(current::resolve).toList());
+            return;
+        }
+        fetchAliases(client, listener.delegateFailureAndWrap((l, fetched) -> {
+            publishAliases(fetched);
+            l.onResponse(names.stream().map(fetched::resolve).toList());
+        }));
+    }
+
+    /**
+     * @return The rewriter aliases or null if they haven't been loaded on this node yet or if they have expired, see
+     * {@link #CACHE_EXPIRE_AFTER_WRITE}
+     */
+    public RewriterAliases getAliases() {
+        final LoadedAliases current = aliases;
+        if (current == null || (aliasesExpireAfterWriteNanos > 0L
+                && System.nanoTime() - current.loadTimeNanos >= aliasesExpireAfterWriteNanos)) {
+            return null;
+        }
+        return current.aliases;
+    }
+
+    /**
+     * Start fetching the aliases in the background if they are due for a refresh, like rewriters, see
+     * {@link #CACHE_REFRESH_AFTER_WRITE}. Aliases that are pushed to the nodes when they are saved make this a
+     * safety net for nodes that missed the push.
+     */
+    private void maybeRefreshAliases(final LoadedAliases current, final Client client) {
+        if (refreshAfterWriteNanos <= 0L) {
+            return;
+        }
+        final long now = System.nanoTime();
+        if (now - current.loadTimeNanos < refreshAfterWriteNanos) {
+            return;
+        }
+        final Long failedAt = failedAliasesRefresh;
+        if ((failedAt != null && now - failedAt < refreshAfterWriteNanos)
+                || !refreshingAliases.compareAndSet(false, true)) {
+            return;
+        }
+        fetchAliases(client, ActionListener.runAfter(ActionListener.wrap(
+                refreshed -> {
+                    failedAliasesRefresh = null;
+                    publishAliases(refreshed);
+                },
+                e -> {
+                    failedAliasesRefresh = System.nanoTime();
+                    LOGGER.error("Could not refresh rewriter aliases, keeping version "
+                            + current.aliases.getVersion(), e);
+                }), () -> refreshingAliases.set(false)));
+    }
+
+    /**
+     * Start reloading the rewriter in the background if it is due for a refresh. The calling thread never waits for
+     * the reload.
+     */
+    private void maybeRefresh(final RewriterFactoryAndLogging factoryAndLogging, final Client client) {
+
+        if (refreshAfterWriteNanos <= 0L) {
+            return;
+        }
+        final String rewriterId = factoryAndLogging.rewriterId;
+        final long now = System.nanoTime();
+        if (now - factoryAndLogging.loadTimeNanos < refreshAfterWriteNanos) {
+            return;
+        }
+        final Long failedAt = failedRefreshes.get(rewriterId);
+        if ((failedAt != null && now - failedAt < refreshAfterWriteNanos) || !refreshing.add(rewriterId)) {
+            return;
+        }
+
+        final ActionListener<ReloadResult> listener = ActionListener.runAfter(ActionListener.wrap(
+                reloadResult -> {
+                    failedRefreshes.remove(rewriterId);
+                    LOGGER.debug("Refreshed rewriter {}: {}", rewriterId, reloadResult);
+                },
+                e -> {
+                    failedRefreshes.put(rewriterId, System.nanoTime());
+                    LOGGER.error("Could not refresh rewriter " + rewriterId + ", keeping version "
+                            + factoryAndLogging.version, e);
+                }), () -> refreshing.remove(rewriterId));
+
+        final Refresher currentRefresher = refresher;
+        if (currentRefresher != null) {
+            currentRefresher.refresh(rewriterId, listener);
+        } else {
+            getExecutor().execute(ActionRunnable.supply(listener, () -> reloadRewriter(rewriterId, client)));
+        }
+    }
+
+    /**
+     * @return true if this node keeps the factories that were configured while validating rewriter definitions, see
+     * {@link #putValidatedFactory(String, IndexRequest, ESRewriterFactory)}
+     */
+    public boolean keepsValidatedFactories() {
+        return keepValidatedFactories;
+    }
+
+    /**
+     * Offer a factory that was configured while the rewriter definition was validated on this node. If this node
+     * loads the document shortly afterwards, the factory will be used instead of configuring a new instance. The
+     * factory is charged to the circuit breaker while it is kept. It is dropped if this node doesn't hold data or if
+     * the circuit breaker trips.
+     *
+     * @param rewriterId The rewriter id
+     * @param indexRequest The request that saves the rewriter document
+     * @param esRewriterFactory The configured factory
+     */
+    public void putValidatedFactory(final String rewriterId, final IndexRequest indexRequest,
+                                    final ESRewriterFactory esRewriterFactory) {
+        if (!esRewriterFactory.isConfigured()) {
+            throw new IllegalArgumentException("Factory is not configured: " + rewriterId);
+        }
+        if (!keepValidatedFactories) {
+            return;
+        }
+        // let expired factories release their bytes
+        validatedFactories.refresh();
+
+        final LoadRewriterConfig loadConfig = new LoadRewriterConfig(rewriterId, indexRequest.sourceAsMap());
+        final long ramBytesUsed = esRewriterFactory.estimateRamBytesUsed(loadConfig.getConfigSizeInBytes());
+        try {
+            circuitBreaker.addEstimateBytesAndMaybeBreak(ramBytesUsed, "querqy validated rewriter [" + rewriterId
+                    + "]");
+        } catch (final CircuitBreakingException e) {
+            LOGGER.debug("Not keeping validated rewriter {}: {}", rewriterId, e.getMessage());
+            return;
+        }
+        validatedFactories.put(rewriterId, new ValidatedFactory(
+                RewriterFactoryAndLogging.sourceDigest(indexRequest.source()), esRewriterFactory, ramBytesUsed));
+    }
+
+    /**
+     * Get a rewriter only if it is loaded already on this node.
+     *
+     * @param rewriterId The rewriter id
+     * @return The rewriter or null if it is not loaded
+     */
+    public RewriterFactoryAndLogging getLoadedFactory(final String rewriterId) {
+        return isPinned(rewriterId) ? pinnedFactories.get(rewriterId) : factories.get(rewriterId);
+    }
+
+    public boolean isPinned(final String rewriterId) {
+        return pinnedRewriterIds.contains(rewriterId);
+    }
+
+    public Set<String> getPinnedRewriterIds() {
+        return pinnedRewriterIds;
+    }
+
+    /**
+     * Get a snapshot of the statistics of this registry.
+     *
+     * @param shardContexts The number of shard contexts on this node
+     * @return The statistics
+     */
+    public RewriterStats getStats(final int shardContexts) {
+        return getStats(shardContexts, CacheStats.EMPTY);
+    }
+
+    /**
+     * Get a snapshot of the statistics of this registry.
+     *
+     * @param shardContexts The number of shard contexts on this node
+     * @param termQueryCacheStats The sum of the statistics of the term query caches of the shard contexts
+     * @return The statistics
+     */
+    public RewriterStats getStats(final int shardContexts, final CacheStats termQueryCacheStats) {
+        final List<String> residentRewriterIds = new ArrayList<>(pinnedFactories.keySet());
+        factories.keys().forEach(residentRewriterIds::add);
+        long estimatedSizeInBytes = factories.weight();
+        if (maxBytes < 0) {
+            // without a max weight the cache counts entries instead of bytes
+            estimatedSizeInBytes = 0L;
+            for (final RewriterFactoryAndLogging factoryAndLogging : factories.values()) {
+                estimatedSizeInBytes += factoryAndLogging.ramBytesUsed();
+            }
+        }
+        for (final RewriterFactoryAndLogging factoryAndLogging : pinnedFactories.values()) {
+            estimatedSizeInBytes += factoryAndLogging.ramBytesUsed();
+        }
+        return new RewriterStats(hits.sum(), misses.sum(), loads.sum(), loadFailures.sum(),
+                TimeUnit.NANOSECONDS.toMillis(loadTimeNanos.sum()), evictions.sum(), thrashingLoads.sum(),
+                estimatedSizeInBytes, shardContexts, residentRewriterIds, rewrittenQueries.getStats(),
+                termQueryCacheStats);
+    }
+
+    /**
+     * @return The node-wide cache of rewritten queries
+     */
+    public RewrittenQueryCache getRewrittenQueryCache() {
+        return rewrittenQueries;
+    }
+
+    /**
+     * @return The number of rewriters that were loaded again after they had been evicted from the cache or that were
+     * too big to be cached at all
+     */
+    public long getThrashingLoads() {
+        return thrashingLoads.sum();
+    }
+
+    /**
+     * Get the ids of the rewriters that were used most recently on this node.
+     *
+     * @return The rewriter ids, or an empty set if we don't keep track of recently used rewriters
+     */
+    public Set<String> getRecentlyUsedRewriterIds() {
+        if (recentlyUsed == null) {
+            return Collections.emptySet();
+        }
+        final Set<String> rewriterIds = new LinkedHashSet<>();
+        recentlyUsed.keys().forEach(rewriterIds::add);
+        return rewriterIds;
+    }
+
+    private void markUsed(final String rewriterId) {
+        if (recentlyUsed != null && recentlyUsed.get(rewriterId) == null) {
+            recentlyUsed.put(rewriterId, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Get the ids of the rewriters that are not yet loaded on this node.
+     *
+     * @param rewriterIds The rewriter ids to check
+     * @return The ids of the rewriters that still need to be loaded, in the order of the input
+     */
+    public Set<String> getMissingRewriterIds(final Collection<String> rewriterIds) {
+        final Set<String> missing = new LinkedHashSet<>();
+        for (final String rewriterId : rewriterIds) {
+            if (getLoadedFactory(rewriterId) == null) {
+                missing.add(rewriterId);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * <p>Load rewriters without blocking the calling thread.</p>
+     *
+     * <p>All rewriters that are not already being loaded by another request are fetched using a single multi-get
+     * request. Rewriters are created on the generic thread pool. The listener will be notified once all rewriters are
+     * available in the registry or if loading any of them failed.</p>
+     *
+     * @param rewriterIds The ids of the rewriters to load
+     * @param client The client for fetching the rewriter configurations
+     * @param listener The listener to notify
+     */
+    public void loadFactories(final Collection<String> rewriterIds, final Client client,
+                              final ActionListener<Void> listener) {
+
+        final List<String> idsToFetch = new ArrayList<>(rewriterIds.size());
+
+        try (final RefCountingListener refs = new RefCountingListener(listener)) {
+
+            for (final String rewriterId : rewriterIds) {
+                final SubscribableListener<RewriterFactoryAndLogging> load = new SubscribableListener<>();
+                final SubscribableListener<RewriterFactoryAndLogging> pendingLoad = pendingLoads
+                        .putIfAbsent(rewriterId, load);
+                if (pendingLoad == null) {
+                    idsToFetch.add(rewriterId);
+                    load.addListener(refs.acquire(factoryAndLogging -> {}));
+                } else {
+                    pendingLoad.addListener(refs.acquire(factoryAndLogging -> {}));
+                }
+            }
+
+            if (!idsToFetch.isEmpty()) {
+                fetchFactories(idsToFetch, client);
+            }
+        }
+
+    }
+
+    private void fetchFactories(final List<String> rewriterIds, final Client client) {
+
+        client.prepareMultiGet().addIds(QUERQY_INDEX_NAME, rewriterIds).execute(
+                new ThreadedActionListener<>(getExecutor(), new ActionListener<>() {
+
+                    @Override
+                    public void onResponse(final MultiGetResponse multiGetResponse) {
+                        final MultiGetItemResponse[] responses = multiGetResponse.getResponses();
+                        for (int i = 0; i < responses.length; i++) {
+                            final String rewriterId = rewriterIds.get(i);
+                            try {
+                                if (responses[i].isFailed()) {
+                                    throw responses[i].getFailure().getFailure();
+                                }
+                                final RewriterFactoryAndLogging factoryAndLogging = createFactory(rewriterId,
+                                        responses[i].getResponse());
+                                publish(factoryAndLogging);
+                                LOGGER.info("Loaded rewriter {} (version {})", rewriterId, factoryAndLogging.version);
+                                completeLoad(rewriterId, factoryAndLogging, null);
+                            } catch (final Exception e) {
+                                completeLoad(rewriterId, null, e);
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(final Exception e) {
+                        final ElasticsearchException loadException = new ElasticsearchException(
+                                "Could not load rewriters " + rewriterIds, e);
+                        rewriterIds.forEach(rewriterId -> completeLoad(rewriterId, null, loadException));
+                    }
+                }));
+
+    }
+
+    private void completeLoad(final String rewriterId, final RewriterFactoryAndLogging factoryAndLogging,
+                              final Exception e) {
+        final SubscribableListener<RewriterFactoryAndLogging> load = pendingLoads.remove(rewriterId);
+        if (load != null) {
+            if (e == null) {
+                load.onResponse(factoryAndLogging);
+            } else {
+                load.onFailure(e);
+            }
+        }
+    }
+
+    public void clearRewriter(final String rewriterId) {
+        if (REWRITER_ALIASES_ID.equals(rewriterId)) {
+            // the aliases document was deleted, load it again on next use
+            aliases = null;
+            return;
+        }
+        factories.invalidate(rewriterId);
+        final RewriterFactoryAndLogging pinned = pinnedFactories.remove(rewriterId);
+        if (pinned != null) {
+            circuitBreaker.addWithoutBreaking(-pinned.ramBytesUsed());
+        }
+        if (recentlyUsed != null) {
+            recentlyUsed.invalidate(rewriterId);
+        }
+        failedRefreshes.remove(rewriterId);
+        rewrittenQueries.invalidateRewriter(rewriterId);
+    }
+
+    public void clearRewriters() {
+        aliases = null;
+        factories.invalidateAll();
+        pinnedFactories.keySet().forEach(this::clearRewriter);
+        if (recentlyUsed != null) {
+            recentlyUsed.invalidateAll();
+        }
+        failedRefreshes.clear();
+        rewrittenQueries.invalidateAll();
+    }
+
+    /**
+     * <p>Reloads a rewriter if it is loaded on this node.</p>
+     *
+     * <p>The new version is built without holding any lock and then published by replacing the cache entry. Queries
+     * keep using the previous version until then. If the document source hasn't changed since the rewriter was
+     * loaded, the rewriter isn't rebuilt.</p>
+     *
+     * @param rewriterId The rewriter id
+     * @param client The client for fetching the rewriter configuration
+     * @return The outcome of the reload
+     */
+    public ReloadResult reloadRewriter(final String rewriterId, final Client client) {
+        return reloadRewriter(rewriterId, null, client);
+    }
+
+    /**
+     * <p>Reloads a rewriter if it is loaded on this node, preferably from a document that was sent with the reload
+     * request.</p>
+     *
+     * <p>The pushed document is only used if it isn't older than the loaded rewriter. Otherwise this node has seen a
+     * newer version already, for example because reload requests arrived out of order, and the current document
+     * is fetched from the Querqy index.</p>
+     *
+     * @param rewriterId The rewriter id
+     * @param pushedDocument The rewriter document, or null if it has to be fetched
+     * @param client The client for fetching the rewriter configuration
+     * @return The outcome of the reload
+     */
+    public ReloadResult reloadRewriter(final String rewriterId, final GetResponse pushedDocument,
+                                       final Client client) {
+        return reloadRewriter(rewriterId, pushedDocument, false, client);
+    }
+
+    /**
+     * <p>Reloads a rewriter, preferably from a document that was sent with the reload request. If load is true, a
+     * rewriter that isn't loaded on this node yet will be loaded so that it can serve queries without being compiled
+     * on the query path.</p>
+     *
+     * <p>The rewriter aliases are reloaded if the rewriterId is {@value
+     * querqy.elasticsearch.rewriterstore.Constants#REWRITER_ALIASES_ID}.</p>
+     *
+     * @param rewriterId The rewriter id
+     * @param pushedDocument The rewriter document, or null if it has to be fetched
+     * @param load Whether to load the rewriter if it isn't loaded yet
+     * @param client The client for fetching the rewriter configuration
+     * @return The outcome of the reload
+     */
+    public ReloadResult reloadRewriter(final String rewriterId, final GetResponse pushedDocument, final boolean load,
+                                       final Client client) {
+
+        if (REWRITER_ALIASES_ID.equals(rewriterId)) {
+            return reloadAliases(pushedDocument, client);
+        }
+
+        final RewriterFactoryAndLogging current = getLoadedFactory(rewriterId);
+        if (current == null) {
+            if (!load) {
+                return ReloadResult.NOT_LOADED;
+            }
+            final RewriterFactoryAndLogging factoryAndLogging = createFactory(rewriterId,
+                    pushedDocument != null && pushedDocument.isExists()
+                            ? pushedDocument : getRewriterDocument(rewriterId, client));
+            publish(factoryAndLogging);
+            LOGGER.info("Loaded rewriter {} (version {})", rewriterId, factoryAndLogging.version);
+            return ReloadResult.LOADED;
+        }
+
+        final GetResponse response;
+        if (pushedDocument != null && pushedDocument.isExists() && pushedDocument.getVersion() >= current.version) {
+            response = pushedDocument;
+        } else {
+            response = getRewriterDocument(rewriterId, client);
+        }
+        if (current.hasSameSource(response)) {
+            // still record the document version so that a concurrent reload of an older version can't win
+            final RewriterFactoryAndLogging updated = current.withDocumentVersion(response);
+            // the copy shares the compiled rewriter but the replaced entry will be released from the breaker
+            circuitBreaker.addWithoutBreaking(updated.ramBytesUsed());
+            publish(updated);
+            LOGGER.info("Rewriter {} unchanged (version {})", rewriterId, response.getVersion());
+            return ReloadResult.UNCHANGED;
+        }
+
+        final RewriterFactoryAndLogging factoryAndLogging = createFactory(rewriterId, response);
+        publish(factoryAndLogging);
+        LOGGER.info("Loaded rewriter {} (version {})", rewriterId, factoryAndLogging.version);
+        return ReloadResult.RELOADED;
+
+    }
+
+    private ReloadResult reloadAliases(final GetResponse pushedDocument, final Client client) {
+        final LoadedAliases current = aliases;
+        final RewriterAliases reloaded = pushedDocument != null && pushedDocument.isExists()
+                && (current == null || pushedDocument.getVersion() >= current.aliases.getVersion())
+                ? RewriterAliases.fromDocument(pushedDocument) : fetchAliases(client);
+        // publish even if unchanged so that the aliases count as freshly loaded
+        publishAliases(reloaded);
+        if (current != null && current.aliases.getVersion() == reloaded.getVersion()) {
+            return ReloadResult.UNCHANGED;
+        }
+        LOGGER.info("Loaded rewriter aliases (version {}): {}", reloaded.getVersion(), reloaded.getAliases());
+        return ReloadResult.RELOADED;
+    }
+
+    /**
+     * Replace the aliases unless a newer version has been published in the meantime. Queries that resolve a rewriter
+     * name afterwards will see all aliases of the new version.
+     */
+    private void publishAliases(final RewriterAliases newAliases) {
+        synchronized (publishMutex) {
+            final LoadedAliases current = aliases;
+            if (current == null || current.aliases.getVersion() <= newAliases.getVersion()) {
+                aliases = new LoadedAliases(newAliases, System.nanoTime());
+            }
+        }
+    }
+
+    private static void fetchAliases(final Client client, final ActionListener<RewriterAliases> listener) {
+        client.prepareGet(QUERQY_INDEX_NAME, REWRITER_ALIASES_ID).execute(ActionListener.wrap(
+                response -> listener.onResponse(RewriterAliases.fromDocument(response)),
+                e -> {
+                    if (ExceptionsHelper.unwrap(e, IndexNotFoundException.class) != null) {
+                        listener.onResponse(RewriterAliases.EMPTY);
+                    } else {
+                        listener.onFailure(new ElasticsearchException("Could not load rewriter aliases", e));
+                    }
+                }));
+    }
+
+    static RewriterAliases fetchAliases(final Client client) {
+        try {
+            return RewriterAliases.fromDocument(client.prepareGet(QUERQY_INDEX_NAME, REWRITER_ALIASES_ID).execute()
+                    .get());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticsearchException("Could not load rewriter aliases", e);
+        } catch (final ExecutionException e) {
+            if (ExceptionsHelper.unwrap(e, IndexNotFoundException.class) != null) {
+                return RewriterAliases.EMPTY;
+            }
+            throw new ElasticsearchException("Could not load rewriter aliases", e);
+        }
+    }
+
+    /**
+     * Replace the cached rewriter unless a newer version has been published in the meantime, for example by a
+     * concurrent reload that finished earlier. The memory of a rewriter that isn't published is released from the
+     * circuit breaker.
+     */
+    private void publish(final RewriterFactoryAndLogging factoryAndLogging) {
+        final String rewriterId = factoryAndLogging.rewriterId;
+        synchronized (publishMutex) {
+            final RewriterFactoryAndLogging current = getLoadedFactory(rewriterId);
+            if (current == null || current.version <= factoryAndLogging.version) {
+                if (isPinned(rewriterId)) {
+                    if (current != null) {
+                        circuitBreaker.addWithoutBreaking(-current.ramBytesUsed());
+                    }
+                    pinnedFactories.put(rewriterId, factoryAndLogging);
+                } else {
+                    if (current == null) {
+                        checkThrashing(factoryAndLogging);
+                    }
+                    factories.put(rewriterId, factoryAndLogging);
+                }
+                // entries are keyed by the rewriter version, drop those of the replaced version
+                if (current != null) {
+                    rewrittenQueries.invalidateRewriter(rewriterId);
+                }
+                return;
+            }
+        }
+        circuitBreaker.addWithoutBreaking(-factoryAndLogging.ramBytesUsed());
+    }
+
+    private void checkThrashing(final RewriterFactoryAndLogging factoryAndLogging) {
+        final String rewriterId = factoryAndLogging.rewriterId;
+        if (recentlyEvicted.get(rewriterId) != null) {
+            recentlyEvicted.invalidate(rewriterId);
+            thrashingLoads.increment();
+        }
+    }
+
+    /**
+     * Checks that the rewriter stored in the given document source fits into the rewriter cache of this node.
+     *
+     * @param rewriterId The rewriter id
+     * @param source The source of the rewriter document in the Querqy index
+     * @throws IllegalArgumentException if the rewriter isn't pinned and its estimated heap exceeds
+     * {@link #CACHE_MAX_BYTES}
+     */
+    public void checkFitsInCache(final String rewriterId, final Map<String, Object> source) {
+        if (maxBytes < 0 || isPinned(rewriterId)) {
+            return;
+        }
+        final LoadRewriterConfig loadConfig = new LoadRewriterConfig(rewriterId, source);
+        checkFitsInCache(rewriterId, ESRewriterFactory.loadInstance(loadConfig)
+                .estimateRamBytesUsed(loadConfig.getConfigSizeInBytes()));
+    }
+
+    /**
+     * A rewriter that is larger than the cache would be evicted right after it was loaded and then be compiled again
+     * for every query, so we don't load it at all.
+     */
+    private void checkFitsInCache(final String rewriterId, final long ramBytesUsed) {
+        if (maxBytes >= 0 && ramBytesUsed > maxBytes && !isPinned(rewriterId)) {
+            throw new IllegalArgumentException("Rewriter " + rewriterId + " is estimated to use " + ramBytesUsed
+                    + " bytes, which exceeds " + CACHE_MAX_BYTES.getKey() + " (" + maxBytes + " bytes). Pin it using "
+                    + CACHE_PINNED.getKey() + " or increase " + CACHE_MAX_BYTES.getKey() + ".");
+        }
+    }
+
+    RewriterFactoryAndLogging fetchFactory(final String rewriterId, final Client client) {
+
+        final RewriterFactoryAndLogging factoryAndLogging = createFactory(rewriterId,
+                getRewriterDocument(rewriterId, client));
+        LOGGER.info("Loaded rewriter {} (version {})", rewriterId, factoryAndLogging.version);
+        return factoryAndLogging;
+
+    }
+
+    static GetResponse getRewriterDocument(final String rewriterId, final Client client) {
+        try {
+            return client.prepareGet(QUERQY_INDEX_NAME, rewriterId).execute().get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticsearchException("Could not load rewriter " + rewriterId, e);
+        } catch (final ExecutionException e) {
+            throw new ElasticsearchException("Could not load rewriter " + rewriterId, e);
+        }
+    }
+
+    /**
+     * Creates a rewriter from the stored document. Its estimated memory is charged to the circuit breaker before the
+     * rewriter is compiled and stays charged until the rewriter is removed from the registry. As a reload charges the
+     * new rewriter while the old one is still in use, a reload that would exceed the limit fails and the old rewriter
+     * keeps serving.
+     *
+     * @throws org.elasticsearch.common.breaker.CircuitBreakingException if the rewriter would exceed the memory limit
+     */
+    RewriterFactoryAndLogging createFactory(final String rewriterId, final GetResponse response) {
+        final long start = System.nanoTime();
+        try {
+            final RewriterFactoryAndLogging factoryAndLogging = doCreateFactory(rewriterId, response);
+            loads.increment();
+            return factoryAndLogging;
+        } catch (final RuntimeException e) {
+            loadFailures.increment();
+            throw e;
+        } finally {
+            loadTimeNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private RewriterFactoryAndLogging doCreateFactory(final String rewriterId, final GetResponse response) {
+
+        final Map<String, Object> source = response.getSource();
+
+        if (source == null) {
+            throw new ResourceNotFoundException("Rewriter not found: " + rewriterId);
+        }
+
+        if (!"rewriter".equals(source.get(RewriterConfigMapping.PROP_TYPE))) {
+            throw new InvalidTypeNameException("Not a rewriter: " + rewriterId);
+        }
+
+        final LoadRewriterConfig loadConfig = new LoadRewriterConfig(rewriterId, source);
+        final String sourceDigest = RewriterFactoryAndLogging.sourceDigest(response);
+
+        // reuse the factory if it was configured for exactly this document when the rewriter was saved on this node
+        validatedFactories.refresh();
+        final ValidatedFactory validatedFactory = validatedFactories.get(rewriterId);
+        final boolean configured = validatedFactory != null && validatedFactory.sourceDigest.equals(sourceDigest);
+        if (configured) {
+            // releases the bytes of the validated factory, they are charged again below
+            validatedFactories.invalidate(rewriterId);
+        }
+        final ESRewriterFactory esRewriterFactory = configured
+                ? validatedFactory.esRewriterFactory : ESRewriterFactory.loadInstance(loadConfig);
+
+        final long ramBytesUsed = esRewriterFactory.estimateRamBytesUsed(loadConfig.getConfigSizeInBytes());
+        checkFitsInCache(rewriterId, ramBytesUsed);
+        circuitBreaker.addEstimateBytesAndMaybeBreak(ramBytesUsed, "querqy rewriter [" + rewriterId + "]");
+
+        try {
+            if (!configured) {
+                esRewriterFactory.configure(loadConfig.getConfig());
+            }
+            return new RewriterFactoryAndLogging(rewriterId, esRewriterFactory, isLoggingEnabled(loadConfig),
+                    response.getVersion(), response.getSeqNo(), response.getPrimaryTerm(), sourceDigest,
+                    ramBytesUsed);
+        } catch (final RuntimeException e) {
+            circuitBreaker.addWithoutBreaking(-ramBytesUsed);
+            throw e;
+        }
+    }
+
+    static boolean isLoggingEnabled(final LoadRewriterConfig loadConfig) {
+        final Map<String, Object> infoLogging = loadConfig.getInfoLoggingConfig();
+        if (infoLogging != null) {
+            final Object sinksObj = infoLogging.get("sinks");
+            if (sinksObj instanceof String) {
+                return "log4j".equals(sinksObj);
+            } else if (sinksObj instanceof Collection<?>) {
+                Collection<?> sinksCollection = (Collection<?>) sinksObj;
+                return (sinksCollection.size() > 0) && sinksCollection.contains("log4j");
+            }
+        }
+        return false;
+    }
+
+    Executor getExecutor() {
+        return threadPool != null ? threadPool.generic() : EsExecutors.DIRECT_EXECUTOR_SERVICE;
+    }
+
+    public void setCircuitBreaker(final CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Inject
+    public void setThreadPool(final ThreadPool threadPool) {
+        this.threadPool = threadPool;
+    }
+
+    /**
+     * Set how rewriters are reloaded when they are due for a refresh (see {@link #CACHE_REFRESH_AFTER_WRITE}). By
+     * default, only the node-wide rewriter is reloaded, on the generic thread pool.
+     *
+     * @param refresher The refresher
+     */
+    public void setRefresher(final Refresher refresher) {
+        this.refresher = refresher;
+    }
+
+    /**
+     * Reloads a rewriter in the background
+     */
+    @FunctionalInterface
+    public interface Refresher {
+
+        /**
+         * Start reloading a rewriter without blocking the calling thread.
+         *
+         * @param rewriterId The rewriter id
+         * @param listener The listener to notify once the rewriter has been reloaded
+         */
+        void refresh(String rewriterId, ActionListener<ReloadResult> listener);
+    }
+
+    private static class LoadedAliases {
+        final RewriterAliases aliases;
+        final long loadTimeNanos;
+
+        LoadedAliases(final RewriterAliases aliases, final long loadTimeNanos) {
+            this.aliases = aliases;
+            this.loadTimeNanos = loadTimeNanos;
+        }
+    }
+
+    private static class ValidatedFactory {
+        final String sourceDigest;
+        final ESRewriterFactory esRewriterFactory;
+        final long ramBytesUsed;
+
+        ValidatedFactory(final String sourceDigest, final ESRewriterFactory esRewriterFactory,
+                         final long ramBytesUsed) {
+            this.sourceDigest = sourceDigest;
+            this.esRewriterFactory = esRewriterFactory;
+            this.ramBytesUsed = ramBytesUsed;
+        }
+    }
+
+    /**
+     * The outcome of reloading a rewriter on a node
+     */
+    public enum ReloadResult {
+
+        /**
+         * The rewriter was rebuilt from the changed document source
+         */
+        RELOADED,
+
+        /**
+         * The document source hasn't changed since the rewriter was loaded
+         */
+        UNCHANGED,
+
+        /**
+         * The rewriter isn't loaded on the node and will be loaded on first use
+         */
+        NOT_LOADED,
+
+        /**
+         * Reloading the rewriter failed
+         */
+        FAILED,
+
+        /**
+         * The rewriter wasn't loaded on the node and has been loaded by the request
+         */
+        LOADED
+
+    }
+
+}
@@ -19,19 +19,9 @@ package querqy.elasticsearch;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.elasticsearch.ElasticsearchException;
-import org.elasticsearch.ResourceNotFoundException;
-import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.client.internal.Client;
-import org.elasticsearch.common.cache.Cache;
-import org.elasticsearch.common.settings.Setting;
-import org.elasticsearch.common.settings.Settings;
-import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.shard.ShardId;
-import org.elasticsearch.indices.InvalidTypeNameException;
-import querqy.elasticsearch.rewriterstore.LoadRewriterConfig;
-import querqy.elasticsearch.rewriterstore.RewriterConfigMapping;
 import querqy.rewrite.RewriteChain;
 import querqy.rewrite.RewriterFactory;
 
@@ -41,137 +31,128 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
-
-import static querqy.elasticsearch.rewriterstore.Constants.QUERQY_INDEX_NAME;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class RewriterShardContext {
 
-
-    public static final Setting<TimeValue> CACHE_EXPIRE_AFTER_WRITE = Setting.timeSetting(
-            "querqy.caches.rewriter.expire_after_write",
-            TimeValue.timeValueNanos(0), // do not expire by default
-            TimeValue.timeValueNanos(0),
-            Setting.Property.NodeScope);
-
-    public static final Setting<TimeValue> CACHE_EXPIRE_AFTER_READ = Setting.timeSetting(
-            "querqy.caches.rewriter.expire_after_read",
-            TimeValue.timeValueNanos(0), // do not expire by default
-            TimeValue.timeValueNanos(0),
-            Setting.Property.NodeScope);
-
     private static final Logger LOGGER = LogManager.getLogger(RewriterShardContext.class);
 
-    final Cache<String, RewriterFactoryAndLogging> factories;
+    // only holds the RewriterFactories that depend on the shard, all others are taken from the RewriterRegistry
+    final Map<String, ShardRewriterFactory> shardFactories;
+    final RewriterRegistry rewriterRegistry;
     final Client client;
     final IndexService indexService;
     final ShardId shardId;
+    final ShardQueryCache queryCache;
+    final ShardTermQueryCache termQueryCache;
 
-    public RewriterShardContext(final ShardId shardId, final IndexService indexService, final Settings settings,
-                                final Client client) {
+    public RewriterShardContext(final ShardId shardId, final IndexService indexService,
+                                final RewriterRegistry rewriterRegistry, final Client client,
+                                final ShardQueryCache queryCache, final ShardTermQueryCache termQueryCache) {
         this.indexService = indexService;
         this.shardId = shardId;
+        this.rewriterRegistry = rewriterRegistry;
         this.client = client;
-        factories = Caches.buildCache(CACHE_EXPIRE_AFTER_READ.get(settings), CACHE_EXPIRE_AFTER_WRITE.get(settings));
+        this.queryCache = queryCache;
+        this.termQueryCache = termQueryCache;
+        shardFactories = new ConcurrentHashMap<>();
         LOGGER.info("Context loaded for shard {} {}", shardId, shardId.getIndex());
     }
 
     public RewriteChainAndLogging getRewriteChain(final List<String> rewriterIds) {
         final List<RewriterFactory> rewriterFactories = new ArrayList<>(rewriterIds.size());
         final Set<String> loggingEnabledRewriters = new HashSet<>();
+        final List<RewriterFactoryAndLogging> rewriters = new ArrayList<>(rewriterIds.size());
 
         for (final String id : rewriterIds) {
 
-            RewriterFactoryAndLogging factoryAndLogging = factories.get(id);
-            if (factoryAndLogging == null) {
-                factoryAndLogging = loadFactory(id, false);
-            }
-            rewriterFactories.add(factoryAndLogging.rewriterFactory);
+            final RewriterFactoryAndLogging factoryAndLogging = rewriterRegistry.getFactory(
+                    rewriterRegistry.resolveLoadedAlias(id, client), client);
+            rewriters.add(factoryAndLogging);
+            rewriterFactories.add(getRewriterFactory(factoryAndLogging));
             if (factoryAndLogging.loggingEnabled) {
-                loggingEnabledRewriters.add(id);
+                loggingEnabledRewriters.add(factoryAndLogging.rewriterId);
             }
 
         }
 
-        return new RewriteChainAndLogging(new RewriteChain(rewriterFactories), loggingEnabledRewriters);
-    }
-
-    public void clearRewriter(final String rewriterId) {
-        factories.invalidate(rewriterId);
+        return new RewriteChainAndLogging(new RewriteChain(rewriterFactories), loggingEnabledRewriters,
+                rewriters);
     }
 
-    public void clearRewriters() {
-        factories.invalidateAll();
-    }
+    RewriterFactory getRewriterFactory(final RewriterFactoryAndLogging factoryAndLogging) {
 
-    public void reloadRewriter(final String rewriterId) {
-        if (factories.get(rewriterId) != null) {
-            loadFactory(rewriterId, true);
+        if (!factoryAndLogging.isShardDependent()) {
+            return factoryAndLogging.getRewriterFactory(null);
         }
-    }
-
-    public synchronized RewriterFactoryAndLogging loadFactory(final String rewriterId, final boolean forceLoad) {
 
-        RewriterFactoryAndLogging factoryAndLogging = factories.get(rewriterId);
-
-        if (forceLoad || (factoryAndLogging == null)) {
-
-            final GetResponse response;
-
-            try {
-                response = client.prepareGet(QUERQY_INDEX_NAME, rewriterId).execute().get();
-            } catch (InterruptedException | ExecutionException e) {
-                throw new ElasticsearchException("Could not load rewriter " + rewriterId, e);
-            }
-
-            final Map<String, Object> source = response.getSource();
+        final ShardRewriterFactory shardRewriterFactory = shardFactories.get(factoryAndLogging.rewriterId);
+        // the node-wide instance changes when the rewriter is reloaded
+        if (shardRewriterFactory != null
+                && shardRewriterFactory.source.esRewriterFactory == factoryAndLogging.esRewriterFactory) {
+            return shardRewriterFactory.rewriterFactory;
+        }
 
-            if (source == null) {
-                throw new ResourceNotFoundException("Rewriter not found: " + rewriterId);
-            }
+        final RewriterFactory rewriterFactory = factoryAndLogging
+                .getRewriterFactory(indexService.getShard(shardId.id()));
+        shardFactories.put(factoryAndLogging.rewriterId, new ShardRewriterFactory(factoryAndLogging, rewriterFactory));
+        return rewriterFactory;
 
-            if (!"rewriter".equals(source.get(RewriterConfigMapping.PROP_TYPE))) {
-                throw new InvalidTypeNameException("Not a rewriter: " + rewriterId);
-            }
+    }
 
-            final LoadRewriterConfig loadConfig = new LoadRewriterConfig(rewriterId, source);
-
-            final Map<String, Object> infoLogging = loadConfig.getInfoLoggingConfig();
-            final boolean loggingEnabled;
-            if (infoLogging != null) {
-                final Object sinksObj = infoLogging.get("sinks");
-                if (sinksObj instanceof String) {
-                    loggingEnabled = "log4j".equals(sinksObj);
-                } else if (sinksObj instanceof Collection<?>) {
-                    Collection<?> sinksCollection = (Collection<?>) sinksObj;
-                    loggingEnabled = (sinksCollection.size() > 0) && sinksCollection.contains("log4j");
-                } else {
-                    loggingEnabled = false;
+    /**
+     * Creates the shard-level RewriterFactories for those of the given rewriters that are already loaded on the node.
+     *
+     * @param rewriterIds The ids of the rewriters to preload
+     * @return The number of preloaded rewriters
+     */
+    public int preloadRewriters(final Collection<String> rewriterIds) {
+        int count = 0;
+        for (final String rewriterId : rewriterIds) {
+            final RewriterFactoryAndLogging factoryAndLogging = rewriterRegistry.getLoadedFactory(rewriterId);
+            if (factoryAndLogging != null) {
+                try {
+                    getRewriterFactory(factoryAndLogging);
+                    count++;
+                } catch (final Exception e) {
+                    LOGGER.warn("Could not preload rewriter {} for shard {}", rewriterId, shardId, e);
                 }
-            } else {
-                loggingEnabled = false;
             }
+        }
+        return count;
+    }
 
-            final RewriterFactory factory = ESRewriterFactory.loadConfiguredInstance(loadConfig)
-                    .createRewriterFactory(indexService.getShard(shardId.id()));
-            factoryAndLogging = new RewriterFactoryAndLogging(factory, loggingEnabled);
-            factories.put(rewriterId, factoryAndLogging);
-
+    boolean hasShardRewriterFactory(final String rewriterId) {
+        return shardFactories.containsKey(rewriterId);
+    }
 
-        }
+    public void clearRewriter(final String rewriterId) {
+        shardFactories.remove(rewriterId);
+        queryCache.invalidateRewriter(rewriterId);
+        termQueryCache.invalidateAll();
+    }
 
-        return factoryAndLogging;
+    public void clearRewriters() {
+        shardFactories.clear();
+        queryCache.invalidateAll();
+        termQueryCache.invalidateAll();
+    }
 
+    public ShardQueryCache getQueryCache() {
+        return queryCache;
     }
 
+    public ShardTermQueryCache getTermQueryCache() {
+        return termQueryCache;
+    }
 
-    public static class RewriterFactoryAndLogging {
-        public final RewriterFactory rewriterFactory;
-        public final boolean loggingEnabled;
+    static class ShardRewriterFactory {
+        final RewriterFactoryAndLogging source;
+        final RewriterFactory rewriterFactory;
 
-        public RewriterFactoryAndLogging(final RewriterFactory rewriterFactory, final boolean loggingEnabled) {
+        ShardRewriterFactory(final RewriterFactoryAndLogging source, final RewriterFactory rewriterFactory) {
+            this.source = source;
             this.rewriterFactory = rewriterFactory;
-            this.loggingEnabled = loggingEnabled;
         }
     }
 }
@@ -20,77 +20,268 @@ package querqy.elasticsearch;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRunnable;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.support.RefCountingListener;
+import org.elasticsearch.client.internal.Client;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.injection.guice.Inject;
+import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.query.SearchExecutionContext;
 import org.elasticsearch.index.shard.IndexEventListener;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.IndicesService;
+import querqy.lucene.rewrite.cache.TermQueryCache;
 
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 public class RewriterShardContexts implements IndexEventListener {
 
+    /**
+     * Rewriters that will be loaded in the background whenever a shard is started on this node.
+     */
+    public static final Setting<List<String>> PRELOAD_REWRITERS = Setting.stringListSetting(
+            "querqy.preload.rewriters",
+            Setting.Property.NodeScope);
+
+    /**
+     * Rewriters that will be loaded in the background whenever a shard of the index is started.
+     */
+    public static final Setting<List<String>> INDEX_PRELOAD_REWRITERS = Setting.stringListSetting(
+            "index.querqy.preload.rewriters",
+            Setting.Property.IndexScope,
+            Setting.Property.Dynamic);
+
     private static final Logger LOGGER = LogManager.getLogger(RewriterShardContexts.class);
 
     private final Map<ShardId, RewriterShardContext> shardContexts;
+    private final RewriterRegistry rewriterRegistry;
     private IndicesService indicesService;
+    private Client client;
     private final Settings settings;
+    private final ShardQueryCache.NodeLimit queryCacheNodeLimit;
 
-    public RewriterShardContexts(final Settings settings) {
+    public RewriterShardContexts(final Settings settings, final RewriterRegistry rewriterRegistry) {
         this.settings = settings;
+        this.queryCacheNodeLimit = new ShardQueryCache.NodeLimit(settings);
+        this.rewriterRegistry = rewriterRegistry;
         this.shardContexts = new ConcurrentHashMap<>();
+        // refresh the shard-level rewriters together with the node-wide rewriter
+        rewriterRegistry.setRefresher((rewriterId, listener) -> {
+            final Executor executor = rewriterRegistry.getExecutor();
+            executor.execute(() -> reloadRewriter(rewriterId, null, executor, listener));
+        });
     }
 
     public RewriteChainAndLogging getRewriteChain(final List<String> rewriterIds,
                                                   final SearchExecutionContext context) {
+        return getShardContext(context).getRewriteChain(rewriterIds);
+    }
 
-        final ShardId shardId = new ShardId(context.getFullyQualifiedIndex(), context.getShardId());
-        RewriterShardContext shardContext = shardContexts.get(shardId);
+    /**
+     * @param context The shard context
+     * @return The cache of the Lucene queries built on the shard
+     */
+    public ShardQueryCache getQueryCache(final SearchExecutionContext context) {
+        return getShardContext(context).getQueryCache();
+    }
 
-        if (shardContext == null) {
-            shardContext = loadShardContext(shardId, context);
-        }
+    /**
+     * @param context The shard context
+     * @return The term query cache of the shard for the mappings of the context, or null if it is disabled or the
+     *         request defines runtime fields
+     */
+    public TermQueryCache getTermQueryCache(final SearchExecutionContext context) {
+        return getShardContext(context).getTermQueryCache().forContext(context);
+    }
 
-        return shardContext.getRewriteChain(rewriterIds);
+    RewriterShardContext getShardContext(final SearchExecutionContext context) {
+
+        final ShardId shardId = new ShardId(context.getFullyQualifiedIndex(), context.getShardId());
+        final RewriterShardContext shardContext = shardContexts.get(shardId);
+
+        return shardContext != null ? shardContext : loadShardContext(shardId, context.getClient());
     }
 
-    protected synchronized RewriterShardContext loadShardContext(final ShardId shardId,
-                                                                 final SearchExecutionContext context) {
+    protected synchronized RewriterShardContext loadShardContext(final ShardId shardId, final Client client) {
         RewriterShardContext shardContext = shardContexts.get(shardId);
 
         if (shardContext == null) {
-            shardContext = new RewriterShardContext(shardId, indicesService.indexService(shardId.getIndex()),  settings,
-                    context.getClient());
+            shardContext = new RewriterShardContext(shardId, indicesService.indexService(shardId.getIndex()),
+                    rewriterRegistry, client, new ShardQueryCache(settings, queryCacheNodeLimit),
+                    new ShardTermQueryCache(settings));
             shardContexts.put(shardId, shardContext);
         }
 
         return shardContext;
     }
 
-    public synchronized void reloadRewriter(final String rewriterId) {
-        shardContexts.values().forEach(ctx -> {
-            try {
-                ctx.reloadRewriter(rewriterId);
-            } catch (final Exception e) {
-                LOGGER.error("Error reloading rewriter " + rewriterId, e);
-                throw new ElasticsearchException("Could not reload rewriter " + rewriterId, e);
+    /**
+     * <p>Reloads a rewriter on this node.</p>
+     *
+     * <p>The rewriter is fetched and compiled once per node. Shard contexts that hold a shard-dependent version of the
+     * rewriter re-create it in parallel on the given executor. The listener is notified once all shard contexts have
+     * been updated.</p>
+     *
+     * @param rewriterId The rewriter id
+     * @param pushedDocument The rewriter document if it was sent with the reload request, null otherwise
+     * @param executor The executor for the shard-level work
+     * @param listener The listener to notify
+     */
+    public void reloadRewriter(final String rewriterId, final GetResponse pushedDocument, final Executor executor,
+                               final ActionListener<RewriterRegistry.ReloadResult> listener) {
+        reloadRewriter(rewriterId, pushedDocument, false, executor, listener);
+    }
+
+    /**
+     * <p>Reloads a rewriter on this node. If load is true, a rewriter that isn't loaded yet is loaded and, if it is
+     * shard-dependent, created for all shard contexts of this node so that it can be used without being compiled on
+     * the query path.</p>
+     *
+     * @param rewriterId The rewriter id
+     * @param pushedDocument The rewriter document if it was sent with the reload request, null otherwise
+     * @param load Whether to load the rewriter if it isn't loaded yet
+     * @param executor The executor for the shard-level work
+     * @param listener The listener to notify
+     */
+    public void reloadRewriter(final String rewriterId, final GetResponse pushedDocument, final boolean load,
+                               final Executor executor,
+                               final ActionListener<RewriterRegistry.ReloadResult> listener) {
+
+        final RewriterRegistry.ReloadResult reloadResult;
+        final RewriterFactoryAndLogging factoryAndLogging;
+        try {
+            reloadResult = rewriterRegistry.reloadRewriter(rewriterId, pushedDocument, load, client);
+            factoryAndLogging = rewriterRegistry.getLoadedFactory(rewriterId);
+        } catch (final Exception e) {
+            LOGGER.error("Error reloading rewriter " + rewriterId, e);
+            listener.onFailure(new ElasticsearchException("Could not reload rewriter " + rewriterId, e));
+            return;
+        }
+
+        if (reloadResult == RewriterRegistry.ReloadResult.RELOADED) {
+            shardContexts.values().forEach(ctx -> {
+                ctx.getQueryCache().invalidateRewriter(rewriterId);
+                ctx.getTermQueryCache().invalidateAll();
+            });
+        }
+
+        final boolean loaded = reloadResult == RewriterRegistry.ReloadResult.LOADED;
+        if ((reloadResult != RewriterRegistry.ReloadResult.RELOADED && !loaded) || factoryAndLogging == null
+                || !factoryAndLogging.isShardDependent()) {
+            listener.onResponse(reloadResult);
+            return;
+        }
+
+        try (final RefCountingListener refs = new RefCountingListener(listener.map(ignored -> reloadResult))) {
+            for (final RewriterShardContext shardContext : shardContexts.values()) {
+                if (loaded || shardContext.hasShardRewriterFactory(rewriterId)) {
+                    executor.execute(ActionRunnable.run(refs.acquire(),
+                            () -> shardContext.getRewriterFactory(factoryAndLogging)));
+                }
             }
-        });
+        }
+
     }
 
     public void clearRewriter(final String rewriterId) {
+        rewriterRegistry.clearRewriter(rewriterId);
         shardContexts.values().forEach(ctx -> ctx.clearRewriter(rewriterId));
     }
 
     public void clearRewriters() {
+        rewriterRegistry.clearRewriters();
         shardContexts.values().forEach(RewriterShardContext::clearRewriters);
     }
 
+    public RewriterStats getStats() {
+        CacheStats termQueryCacheStats = CacheStats.EMPTY;
+        for (final RewriterShardContext shardContext : shardContexts.values()) {
+            termQueryCacheStats = termQueryCacheStats.add(shardContext.getTermQueryCache().getStats());
+        }
+        return rewriterRegistry.getStats(shardContexts.size(), termQueryCacheStats);
+    }
+
+    public RewriterRegistry getRewriterRegistry() {
+        return rewriterRegistry;
+    }
+
+    /**
+     * Loads the rewriters listed in {@link #PRELOAD_REWRITERS} and {@link #INDEX_PRELOAD_REWRITERS}, the pinned
+     * rewriters and the rewriters that were used most recently on this node, in the background so that the first
+     * queries against the shard don't have to wait for them.
+     */
+    @Override
+    public void afterIndexShardStarted(final IndexShard indexShard) {
+
+        if (client == null) {
+            return;
+        }
+
+        final Set<String> rewriterIds = new LinkedHashSet<>(PRELOAD_REWRITERS.get(settings));
+        rewriterIds.addAll(INDEX_PRELOAD_REWRITERS.get(indexShard.indexSettings().getSettings()));
+        rewriterIds.addAll(rewriterRegistry.getPinnedRewriterIds());
+        rewriterIds.addAll(rewriterRegistry.getRecentlyUsedRewriterIds());
+
+        if (rewriterIds.isEmpty()) {
+            return;
+        }
+
+        final ShardId shardId = indexShard.shardId();
+        final long start = System.nanoTime();
+
+        // never load rewriters on the cluster state applier thread
+        rewriterRegistry.getExecutor().execute(() -> rewriterRegistry.resolveAliases(rewriterIds, client,
+                ActionListener.wrap(resolvedIds -> {
+
+                    final Set<String> resolvedRewriterIds = new LinkedHashSet<>(resolvedIds);
+                    final Set<String> missingRewriterIds = rewriterRegistry.getMissingRewriterIds(resolvedRewriterIds);
+                    rewriterRegistry.loadFactories(missingRewriterIds, client, new ActionListener<>() {
+
+                        @Override
+                        public void onResponse(final Void ignored) {
+                            preloadRewriters(shardId, resolvedRewriterIds, start);
+                        }
+
+                        @Override
+                        public void onFailure(final Exception e) {
+                            LOGGER.warn("Could not load all rewriters for preloading shard " + shardId, e);
+                            preloadRewriters(shardId, resolvedRewriterIds, start);
+                        }
+                    });
+
+                }, e -> LOGGER.warn("Could not load rewriter aliases for preloading shard " + shardId, e))));
+
+    }
+
+    private void preloadRewriters(final ShardId shardId, final Set<String> rewriterIds, final long start) {
+
+        final IndexService indexService = indicesService.indexService(shardId.getIndex());
+        if (indexService == null || !indexService.hasShard(shardId.id())) {
+            // the shard has been removed from this node in the meantime
+            return;
+        }
+
+        RewriterShardContext shardContext = shardContexts.get(shardId);
+        if (shardContext == null) {
+            shardContext = loadShardContext(shardId, client);
+        }
+        final int count = shardContext.preloadRewriters(rewriterIds);
+
+        LOGGER.info("Preloaded {} of {} rewriters for shard {} in {}", count, rewriterIds.size(), shardId,
+                TimeValue.timeValueNanos(System.nanoTime() - start));
+    }
+
     @Override
     public synchronized void shardRoutingChanged(final IndexShard indexShard, final ShardRouting oldRouting,
                                                  final ShardRouting newRouting) {
@@ -106,4 +297,9 @@ public class RewriterShardContexts implements IndexEventListener {
     public void setIndicesService(final IndicesService indicesService) {
         this.indicesService = indicesService;
     }
+
+    @Inject
+    public void setClient(final Client client) {
+        this.client = client;
+    }
 }
@@ -0,0 +1,228 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.xcontent.ToXContentFragment;
+import org.elasticsearch.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Statistics of the rewriters loaded on a node, or the sum of the statistics of several nodes.
+ */
+public class RewriterStats implements Writeable, ToXContentFragment {
+
+    public static final RewriterStats EMPTY = new RewriterStats(0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0,
+            Collections.emptyList(), CacheStats.EMPTY, CacheStats.EMPTY);
+
+    private final long hits;
+    private final long misses;
+    private final long loads;
+    private final long loadFailures;
+    private final long loadTimeInMillis;
+    private final long evictions;
+    private final long thrashingLoads;
+    private final long estimatedSizeInBytes;
+    private final int shardContexts;
+    private final List<String> residentRewriterIds;
+    private final CacheStats queryCacheStats;
+    private final CacheStats termQueryCacheStats;
+
+    public RewriterStats(final long hits, final long misses, final long loads, final long loadFailures,
+                         final long loadTimeInMillis, final long evictions, final long thrashingLoads,
+                         final long estimatedSizeInBytes, final int shardContexts,
+                         final List<String> residentRewriterIds) {
+        this(hits, misses, loads, loadFailures, loadTimeInMillis, evictions, thrashingLoads, estimatedSizeInBytes,
+                shardContexts, residentRewriterIds, CacheStats.EMPTY, CacheStats.EMPTY);
+    }
+
+    public RewriterStats(final long hits, final long misses, final long loads, final long loadFailures,
+                         final long loadTimeInMillis, final long evictions, final long thrashingLoads,
+                         final long estimatedSizeInBytes, final int shardContexts,
+                         final List<String> residentRewriterIds, final CacheStats queryCacheStats,
+                         final CacheStats termQueryCacheStats) {
+        this.hits = hits;
+        this.misses = misses;
+        this.loads = loads;
+        this.loadFailures = loadFailures;
+        this.loadTimeInMillis = loadTimeInMillis;
+        this.evictions = evictions;
+        this.thrashingLoads = thrashingLoads;
+        this.estimatedSizeInBytes = estimatedSizeInBytes;
+        this.shardContexts = shardContexts;
+        this.residentRewriterIds = residentRewriterIds;
+        this.queryCacheStats = queryCacheStats;
+        this.termQueryCacheStats = termQueryCacheStats;
+    }
+
+    public RewriterStats(final StreamInput in) throws IOException {
+        hits = in.readVLong();
+        misses = in.readVLong();
+        loads = in.readVLong();
+        loadFailures = in.readVLong();
+        loadTimeInMillis = in.readVLong();
+        evictions = in.readVLong();
+        thrashingLoads = in.readVLong();
+        estimatedSizeInBytes = in.readVLong();
+        shardContexts = in.readVInt();
+        residentRewriterIds = in.readStringCollectionAsList();
+        queryCacheStats = new CacheStats(in);
+        termQueryCacheStats = new CacheStats(in);
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        out.writeVLong(hits);
+        out.writeVLong(misses);
+        out.writeVLong(loads);
+        out.writeVLong(loadFailures);
+        out.writeVLong(loadTimeInMillis);
+        out.writeVLong(evictions);
+        out.writeVLong(thrashingLoads);
+        out.writeVLong(estimatedSizeInBytes);
+        out.writeVInt(shardContexts);
+        out.writeStringCollection(residentRewriterIds);
+        queryCacheStats.writeTo(out);
+        termQueryCacheStats.writeTo(out);
+    }
+
+    /**
+     * Sum up these and the other statistics. The resident rewriters are not merged as they only make sense per node.
+     *
+     * @param other The statistics to add
+     * @return The sum
+     */
+    public RewriterStats add(final RewriterStats other) {
+        return new RewriterStats(hits + other.hits, misses + other.misses, loads + other.loads,
+                loadFailures + other.loadFailures, loadTimeInMillis + other.loadTimeInMillis,
+                evictions + other.evictions, thrashingLoads + other.thrashingLoads,
+                estimatedSizeInBytes + other.estimatedSizeInBytes, shardContexts + other.shardContexts,
+                Collections.emptyList(), queryCacheStats.add(other.queryCacheStats),
+                termQueryCacheStats.add(other.termQueryCacheStats));
+    }
+
+    @Override
+    public XContentBuilder toXContent(final XContentBuilder builder, final Params params) throws IOException {
+        builder.startObject("cache");
+        builder.field("hits", hits);
+        builder.field("misses", misses);
+        builder.field("evictions", evictions);
+        builder.field("resident", residentRewriterIds.size());
+        builder.humanReadableField("estimated_size_in_bytes", "estimated_size",
+                ByteSizeValue.ofBytes(estimatedSizeInBytes));
+        builder.endObject();
+        builder.startObject("query_cache");
+        queryCacheStats.toXContent(builder, params);
+        builder.endObject();
+        builder.startObject("term_query_cache");
+        termQueryCacheStats.toXContent(builder, params);
+        builder.endObject();
+        builder.startObject("loader");
+        builder.field("loads", loads);
+        builder.field("failures", loadFailures);
+        builder.field("thrashing_loads", thrashingLoads);
+        builder.humanReadableField("load_time_in_millis", "load_time", TimeValue.timeValueMillis(loadTimeInMillis));
+        builder.endObject();
+        builder.field("shard_contexts", shardContexts);
+        if (!residentRewriterIds.isEmpty()) {
+            builder.field("resident_rewriters", residentRewriterIds);
+        }
+        return builder;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getLoads() {
+        return loads;
+    }
+
+    public long getLoadFailures() {
+        return loadFailures;
+    }
+
+    public long getLoadTimeInMillis() {
+        return loadTimeInMillis;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getThrashingLoads() {
+        return thrashingLoads;
+    }
+
+    public long getEstimatedSizeInBytes() {
+        return estimatedSizeInBytes;
+    }
+
+    public int getShardContexts() {
+        return shardContexts;
+    }
+
+    public List<String> getResidentRewriterIds() {
+        return residentRewriterIds;
+    }
+
+    public CacheStats getQueryCacheStats() {
+        return queryCacheStats;
+    }
+
+    public CacheStats getTermQueryCacheStats() {
+        return termQueryCacheStats;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final RewriterStats that = (RewriterStats) o;
+        return hits == that.hits && misses == that.misses && loads == that.loads
+                && loadFailures == that.loadFailures && loadTimeInMillis == that.loadTimeInMillis
+                && evictions == that.evictions && thrashingLoads == that.thrashingLoads
+                && estimatedSizeInBytes == that.estimatedSizeInBytes && shardContexts == that.shardContexts
+                && Objects.equals(residentRewriterIds, that.residentRewriterIds)
+                && Objects.equals(queryCacheStats, that.queryCacheStats)
+                && Objects.equals(termQueryCacheStats, that.termQueryCacheStats);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(hits, misses, loads, loadFailures, loadTimeInMillis, evictions, thrashingLoads,
+                estimatedSizeInBytes, shardContexts, residentRewriterIds, queryCacheStats,
+                termQueryCacheStats);
+    }
+}
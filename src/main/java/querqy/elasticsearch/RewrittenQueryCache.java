@@ -0,0 +1,314 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch;
+
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.RemovalNotification;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.core.TimeValue;
+import querqy.elasticsearch.query.QuerqyQueryBuilder;
+import querqy.elasticsearch.query.Rewriter;
+import querqy.model.ExpandedQuery;
+import querqy.parser.QuerqyParser;
+import querqy.parser.WhiteSpaceQuerqyParser;
+import querqy.rewrite.RewriteChain;
+import querqy.rewrite.RewriteChainOutput;
+import querqy.rewrite.SearchEngineRequestAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Node-wide cache of the output of rewrite chains so that frequent queries don't have to run through all rewriters
+ * again.</p>
+ *
+ * <p>Entries are keyed by the query string, the rewriters with the versions that are loaded on this node and the
+ * rewriter params of the query. Whitespace in the query string is normalized if the query is parsed by the default
+ * {@link WhiteSpaceQuerqyParser}. The entries of a rewriter are invalidated when the rewriter is reloaded or
+ * removed from the node.</p>
+ *
+ * <p>The cached rewriting result is shared by all queries that hit it, concurrently and without copying. This relies on
+ * query building only reading the rewritten query, see {@link CachingRewriteChain}. Queries that log rewriter info are not cached as the info is logged while rewriting. Rewrite
+ * chains that contain a shard-dependent rewriter are never cached, as their output can depend on the shard and its
+ * current index reader.</p>
+ */
+public class RewrittenQueryCache {
+
+    /**
+     * The maximum estimated heap of the cached rewriting results. The cache is disabled if this is 0.
+     */
+    public static final Setting<ByteSizeValue> MAX_BYTES = Setting.byteSizeSetting(
+            "querqy.caches.rewritten_query.max_bytes",
+            ByteSizeValue.ZERO, // disabled by default
+            Setting.Property.NodeScope);
+
+    public static final Setting<TimeValue> EXPIRE_AFTER_READ = Setting.timeSetting(
+            "querqy.caches.rewritten_query.expire_after_read",
+            TimeValue.timeValueNanos(0), // do not expire by default
+            TimeValue.timeValueNanos(0),
+            Setting.Property.NodeScope);
+
+    // we can't measure the rewritten query, so we estimate its size from its string representation
+    static final int ESTIMATED_BYTES_PER_QUERY_CHAR = 16;
+
+    // the default Querqy parser splits the query string at whitespace and ignores empty tokens, other parsers might
+    // not, so we only normalize for the default parser
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // null if the cache is disabled
+    private final Cache<Key, Entry> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public RewrittenQueryCache(final Settings settings) {
+        final long maxBytes = MAX_BYTES.get(settings).getBytes();
+        cache = maxBytes > 0L
+                ? Caches.buildCache(TimeValue.ZERO, EXPIRE_AFTER_READ.get(settings), maxBytes,
+                        (key, entry) -> entry.ramBytesUsed,
+                        notification -> {
+                            if (notification.getRemovalReason() == RemovalNotification.RemovalReason.EVICTED) {
+                                evictions.increment();
+                            }
+                        })
+                : null;
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Wrap the rewrite chain of a query so that its output is taken from the cache if possible.
+     *
+     * @param rewriteChainAndLogging The rewrite chain of the query
+     * @param queryBuilder The query
+     * @return A rewrite chain that uses the cache, or the rewrite chain of the query if the cache is disabled or the
+     * chain can't be cached
+     */
+    public RewriteChain cachingRewriteChain(final RewriteChainAndLogging rewriteChainAndLogging,
+                                            final QuerqyQueryBuilder queryBuilder) {
+        if (cache == null || !isCacheable(rewriteChainAndLogging)) {
+            return rewriteChainAndLogging.rewriteChain;
+        }
+        return new CachingRewriteChain(rewriteChainAndLogging, queryBuilder, this);
+    }
+
+    /**
+     * Shard-dependent rewriters, like the word break rewriter that reads the dictionary from the index, can rewrite
+     * the same query differently per shard and after each refresh.
+     *
+     * @param rewriteChainAndLogging The rewrite chain
+     * @return true iff the chain has no shard-dependent rewriter
+     */
+    static boolean isCacheable(final RewriteChainAndLogging rewriteChainAndLogging) {
+        for (final RewriterFactoryAndLogging factoryAndLogging : rewriteChainAndLogging.rewriters) {
+            if (factoryAndLogging.isShardDependent()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static Key createKey(final RewriteChainAndLogging rewriteChainAndLogging, final QuerqyQueryBuilder queryBuilder,
+                         final Optional<QuerqyParser> querqyParser) {
+
+        final List<String> rewriterNames = new ArrayList<>();
+        final List<Map<String, Object>> params = new ArrayList<>();
+        for (final Rewriter rewriter : queryBuilder.getRewriters()) {
+            rewriterNames.add(rewriter.getName());
+            params.add(rewriter.getParams());
+        }
+
+        final List<String> rewriterIds = new ArrayList<>(rewriteChainAndLogging.rewriters.size());
+        final List<Long> versions = new ArrayList<>(rewriteChainAndLogging.rewriters.size());
+        for (final RewriterFactoryAndLogging factoryAndLogging : rewriteChainAndLogging.rewriters) {
+            rewriterIds.add(factoryAndLogging.rewriterId);
+            versions.add(factoryAndLogging.version);
+        }
+
+        final String queryString = queryBuilder.getMatchingQuery().getQueryString();
+        return new Key(isDefaultParser(querqyParser) ? normalizeQueryString(queryString) : queryString,
+                rewriterNames, rewriterIds, versions, params);
+    }
+
+    /**
+     * @param querqyParser The parser of the request, empty if Querqy uses its default parser
+     * @return true iff the query string will be parsed by the {@link WhiteSpaceQuerqyParser}
+     */
+    static boolean isDefaultParser(final Optional<QuerqyParser> querqyParser) {
+        return querqyParser.map(parser -> parser.getClass() == WhiteSpaceQuerqyParser.class).orElse(true);
+    }
+
+    static String normalizeQueryString(final String queryString) {
+        return WHITESPACE.matcher(queryString.strip()).replaceAll(" ");
+    }
+
+    RewriteChainOutput get(final Key key) {
+        final Entry entry = cache.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.output;
+    }
+
+    void put(final Key key, final RewriteChainOutput output) {
+        cache.put(key, new Entry(output, key.ramBytesUsed()
+                + ESTIMATED_BYTES_PER_QUERY_CHAR * (long) String.valueOf(output.getExpandedQuery()).length()));
+    }
+
+    /**
+     * Remove all entries that were rewritten using the given rewriter.
+     *
+     * @param rewriterId The rewriter id
+     */
+    public void invalidateRewriter(final String rewriterId) {
+        if (cache == null) {
+            return;
+        }
+        final List<Key> keys = new ArrayList<>();
+        for (final Key key : cache.keys()) {
+            if (key.rewriterIds.contains(rewriterId)) {
+                keys.add(key);
+            }
+        }
+        keys.forEach(cache::invalidate);
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    public CacheStats getStats() {
+        if (cache == null) {
+            return CacheStats.EMPTY;
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), cache.count(), cache.weight());
+    }
+
+    static final class Key {
+
+        final String queryString;
+        final List<String> rewriterNames;
+        final List<String> rewriterIds;
+        final List<Long> versions;
+        final List<Map<String, Object>> params;
+        private final int hashCode;
+
+        Key(final String queryString, final List<String> rewriterNames, final List<String> rewriterIds,
+            final List<Long> versions, final List<Map<String, Object>> params) {
+            this.queryString = queryString;
+            this.rewriterNames = rewriterNames;
+            this.rewriterIds = rewriterIds;
+            this.versions = versions;
+            this.params = params;
+            hashCode = Objects.hash(queryString, rewriterNames, rewriterIds, versions, params);
+        }
+
+        long ramBytesUsed() {
+            return RamUsageEstimator.sizeOfObject(queryString)
+                    + RamUsageEstimator.sizeOfObject(rewriterNames) + RamUsageEstimator.sizeOfObject(rewriterIds)
+                    + RamUsageEstimator.sizeOfObject(versions) + RamUsageEstimator.sizeOfObject(params);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Key that = (Key) o;
+            // maps compare their entries regardless of order, which gives us a canonical form of the params
+            return hashCode == that.hashCode && queryString.equals(that.queryString) && rewriterNames.equals(that.rewriterNames)
+                    && rewriterIds.equals(that.rewriterIds) && versions.equals(that.versions)
+                    && params.equals(that.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class Entry {
+
+        final RewriteChainOutput output;
+        final long ramBytesUsed;
+
+        Entry(final RewriteChainOutput output, final long ramBytesUsed) {
+            this.output = output;
+            this.ramBytesUsed = Math.max(1L, ramBytesUsed);
+        }
+    }
+
+    /**
+     * <p>A rewrite chain that looks up the output for its key in the cache and only rewrites the query on a cache
+     * miss.</p>
+     *
+     * <p>The cached {@link RewriteChainOutput} and its {@link ExpandedQuery} are returned to concurrent queries as
+     * they are. This is safe because nothing modifies them after rewriting: Querqy's QueryParsingController only reads
+     * the rewritten query to build the Lucene queries, and this plugin doesn't access the output at all. Anything that
+     * starts to modify the rewritten query after the rewrite chain, for example a Querqy upgrade, has to copy the
+     * cached output here.</p>
+     */
+    static class CachingRewriteChain extends RewriteChain {
+
+        private final RewriteChainAndLogging rewriteChainAndLogging;
+        private final QuerqyQueryBuilder queryBuilder;
+        private final RewrittenQueryCache cache;
+
+        CachingRewriteChain(final RewriteChainAndLogging rewriteChainAndLogging, final QuerqyQueryBuilder queryBuilder,
+                            final RewrittenQueryCache cache) {
+            super(rewriteChainAndLogging.rewriteChain.getFactories());
+            this.rewriteChainAndLogging = rewriteChainAndLogging;
+            this.queryBuilder = queryBuilder;
+            this.cache = cache;
+        }
+
+        @Override
+        public RewriteChainOutput rewrite(final ExpandedQuery query,
+                                          final SearchEngineRequestAdapter searchEngineRequestAdapter) {
+            // the parser is only known to the request adapter
+            final Key key = createKey(rewriteChainAndLogging, queryBuilder,
+                    searchEngineRequestAdapter.createQuerqyParser());
+            final RewriteChainOutput cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            final RewriteChainOutput output = super.rewrite(query, searchEngineRequestAdapter);
+            cache.put(key, output);
+            return output;
+        }
+    }
+
+}
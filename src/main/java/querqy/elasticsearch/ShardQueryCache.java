@@ -0,0 +1,314 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.query.SearchExecutionContext;
+import querqy.elasticsearch.query.QuerqyQueryBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Cache of the Lucene queries that were built for Querqy queries on a shard, so that repeated queries don't have to
+ * be rewritten and built again.</p>
+ *
+ * <p>Entries are keyed by the query builder, the versions of the rewriters, the mappings and the index reader. A query
+ * is only cached if building it didn't make the search context non-cacheable, for example by using the current
+ * time. Queries of requests that define runtime fields (runtime_mappings) are not cached as these fields are not
+ * part of the mappings key. The entries of a rewriter are invalidated when the rewriter is reloaded or removed, the entries of an index
+ * reader when the reader is closed.</p>
+ *
+ * <p>As the entries are tied to the index reader, a query can only be hit until the next refresh that opens a new
+ * reader. Refreshes without changes keep the reader, but on an index that is written continuously with the default
+ * refresh interval of 1s, a new reader is opened every second and the hit rate will be close to zero. The cache is
+ * meant for indices that are refreshed rarely or not at all, for example indices that are rebuilt and then only read.
+ * Use the rewritten query cache ({@link RewrittenQueryCache}) for indices with frequent refreshes.</p>
+ *
+ * <p>The size of each shard's cache is bounded by {@link #MAX_BYTES_PER_SHARD}. The caches of all shards of a node
+ * together are bounded by {@link #MAX_BYTES_PER_NODE}. Queries are not cached while the node limit is reached.</p>
+ */
+public class ShardQueryCache {
+
+    /**
+     * The maximum estimated heap of the cached queries per shard. The cache is disabled if this is 0.
+     */
+    public static final Setting<ByteSizeValue> MAX_BYTES_PER_SHARD = Setting.byteSizeSetting(
+            "querqy.caches.lucene_query.max_bytes_per_shard",
+            ByteSizeValue.ZERO, // disabled by default
+            Setting.Property.NodeScope);
+
+    /**
+     * The maximum estimated heap of the cached queries of all shards on a node, either as an absolute value or as a
+     * percentage of the heap.
+     */
+    public static final Setting<ByteSizeValue> MAX_BYTES_PER_NODE = Setting.memorySizeSetting(
+            "querqy.caches.lucene_query.max_bytes_per_node",
+            "1%",
+            Setting.Property.NodeScope);
+
+    // null if the cache is disabled
+    private final Cache<Key, Entry> cache;
+    private final NodeLimit nodeLimit;
+
+    // the readers that we've registered a close listener for
+    private final Set<Object> openReaders = ConcurrentCollections.newConcurrentSet();
+
+    public ShardQueryCache(final Settings settings) {
+        this(settings, new NodeLimit(settings));
+    }
+
+    public ShardQueryCache(final Settings settings, final NodeLimit nodeLimit) {
+        final long maxBytes = MAX_BYTES_PER_SHARD.get(settings).getBytes();
+        this.nodeLimit = nodeLimit;
+        cache = maxBytes > 0L
+                ? Caches.buildCache(TimeValue.ZERO, TimeValue.ZERO, maxBytes,
+                        (key, entry) -> entry.ramBytesUsed,
+                        notification -> nodeLimit.release(notification.getValue().ramBytesUsed))
+                : null;
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Create the cache key of a query.
+     *
+     * @param queryBuilder The query
+     * @param rewriteChainAndLogging The rewriters of the query as they are loaded on this node
+     * @param context The shard context
+     * @return The key, or null if the query can't be cached on this shard
+     */
+    public Key createKey(final QuerqyQueryBuilder queryBuilder, final RewriteChainAndLogging rewriteChainAndLogging,
+                         final SearchExecutionContext context) {
+        if (cache == null) {
+            return null;
+        }
+        // the key does not reflect runtime fields that are defined in the request
+        if (Caches.hasRequestRuntimeFields(context)) {
+            return null;
+        }
+        final IndexReader.CacheHelper readerCacheHelper = context.getIndexReader().getReaderCacheHelper();
+        if (readerCacheHelper == null) {
+            return null;
+        }
+        final Object readerCacheKey = readerCacheHelper.getKey();
+        if (openReaders.add(readerCacheKey)) {
+            readerCacheHelper.addClosedListener(this::invalidateReader);
+        }
+        final List<String> rewriterIds = new ArrayList<>();
+        final List<Long> versions = new ArrayList<>();
+        if (rewriteChainAndLogging != null) {
+            for (final RewriterFactoryAndLogging factoryAndLogging : rewriteChainAndLogging.rewriters) {
+                rewriterIds.add(factoryAndLogging.rewriterId);
+                versions.add(factoryAndLogging.version);
+            }
+        }
+        return new Key(queryBuilder, rewriterIds, versions, context.mappingCacheKey(), readerCacheKey);
+    }
+
+    public Query get(final Key key) {
+        final Entry entry = cache.get(key);
+        return entry != null ? entry.query : null;
+    }
+
+    public void put(final Key key, final Query query) {
+        final long ramBytesUsed = RamUsageEstimator.QUERY_DEFAULT_RAM_BYTES_USED + estimateRamBytesUsed(query);
+        // the caches of the other shards may have used up the node limit
+        if (nodeLimit.tryReserve(ramBytesUsed)) {
+            cache.put(key, new Entry(query, ramBytesUsed));
+        }
+    }
+
+    /**
+     * Remove all queries that were built using the given rewriter.
+     *
+     * @param rewriterId The rewriter id
+     */
+    public void invalidateRewriter(final String rewriterId) {
+        if (cache == null) {
+            return;
+        }
+        final List<Key> keys = new ArrayList<>();
+        for (final Key key : cache.keys()) {
+            if (key.rewriterIds.contains(rewriterId)) {
+                keys.add(key);
+            }
+        }
+        keys.forEach(cache::invalidate);
+    }
+
+    /**
+     * Remove all queries that were built for the given index reader. Called when the reader is closed.
+     *
+     * @param readerCacheKey The cache key of the reader
+     */
+    void invalidateReader(final Object readerCacheKey) {
+        openReaders.remove(readerCacheKey);
+        if (cache == null) {
+            return;
+        }
+        final List<Key> keys = new ArrayList<>();
+        for (final Key key : cache.keys()) {
+            if (key.readerCacheKey == readerCacheKey) {
+                keys.add(key);
+            }
+        }
+        keys.forEach(cache::invalidate);
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    public int count() {
+        return cache == null ? 0 : cache.count();
+    }
+
+    /**
+     * Estimate the heap of a query by visiting its clauses and terms.
+     *
+     * @param query The query
+     * @return The estimated heap usage in bytes
+     */
+    static long estimateRamBytesUsed(final Query query) {
+        final long[] bytes = new long[1];
+        query.visit(new QueryVisitor() {
+
+            @Override
+            public void consumeTerms(final Query query, final Term... terms) {
+                bytes[0] += RamUsageEstimator.QUERY_DEFAULT_RAM_BYTES_USED;
+                for (final Term term : terms) {
+                    bytes[0] += RamUsageEstimator.sizeOf(term.field()) + term.bytes().length;
+                }
+            }
+
+            @Override
+            public void visitLeaf(final Query query) {
+                bytes[0] += RamUsageEstimator.QUERY_DEFAULT_RAM_BYTES_USED;
+            }
+
+            @Override
+            public QueryVisitor getSubVisitor(final BooleanClause.Occur occur, final Query parent) {
+                bytes[0] += RamUsageEstimator.QUERY_DEFAULT_RAM_BYTES_USED;
+                return this;
+            }
+        });
+        return bytes[0];
+    }
+
+    /**
+     * The heap that the query caches of all shards on a node may use together.
+     */
+    public static final class NodeLimit {
+
+        private final long maxBytes;
+        private final AtomicLong usedBytes = new AtomicLong();
+
+        public NodeLimit(final Settings settings) {
+            this(MAX_BYTES_PER_NODE.get(settings).getBytes());
+        }
+
+        NodeLimit(final long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        boolean tryReserve(final long bytes) {
+            if (usedBytes.addAndGet(bytes) > maxBytes) {
+                usedBytes.addAndGet(-bytes);
+                return false;
+            }
+            return true;
+        }
+
+        void release(final long bytes) {
+            usedBytes.addAndGet(-bytes);
+        }
+
+        public long getUsedBytes() {
+            return usedBytes.get();
+        }
+    }
+
+    private static final class Entry {
+
+        final Query query;
+        final long ramBytesUsed;
+
+        Entry(final Query query, final long ramBytesUsed) {
+            this.query = query;
+            this.ramBytesUsed = ramBytesUsed;
+        }
+    }
+
+    public static final class Key {
+
+        final QuerqyQueryBuilder queryBuilder;
+        final List<String> rewriterIds;
+        final List<Long> versions;
+        final Object mappingCacheKey;
+        final Object readerCacheKey;
+        private final int hashCode;
+
+        Key(final QuerqyQueryBuilder queryBuilder, final List<String> rewriterIds, final List<Long> versions,
+            final Object mappingCacheKey, final Object readerCacheKey) {
+            this.queryBuilder = queryBuilder;
+            this.rewriterIds = rewriterIds;
+            this.versions = versions;
+            this.mappingCacheKey = mappingCacheKey;
+            this.readerCacheKey = readerCacheKey;
+            hashCode = Objects.hash(queryBuilder, rewriterIds, versions, mappingCacheKey, readerCacheKey);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Key that = (Key) o;
+            return hashCode == that.hashCode && mappingCacheKey == that.mappingCacheKey
+                    && readerCacheKey == that.readerCacheKey && rewriterIds.equals(that.rewriterIds)
+                    && versions.equals(that.versions) && queryBuilder.equals(that.queryBuilder);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
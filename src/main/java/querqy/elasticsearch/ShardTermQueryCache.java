@@ -0,0 +1,173 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch;
+
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.RemovalNotification;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.query.SearchExecutionContext;
+import querqy.lucene.rewrite.cache.CacheKey;
+import querqy.lucene.rewrite.cache.TermQueryCache;
+import querqy.lucene.rewrite.cache.TermQueryCacheValue;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Cache of the term queries that Querqy creates when it builds the Lucene query on a shard. Rewriters that add the
+ * same synonyms or boost terms to many queries don't have to analyze these terms again for each query.</p>
+ *
+ * <p>The term queries depend on the analyzers of the index. Entries are therefore scoped to the mappings for which
+ * they were created and the cache is cleared once a query sees new mappings. It is also cleared when a rewriter is
+ * reloaded or removed.</p>
+ *
+ * <p>Requests that define runtime fields (runtime_mappings) don't use the cache as these fields can change the
+ * analyzers without changing the mappings.</p>
+ */
+public class ShardTermQueryCache {
+
+    /**
+     * The maximum number of term queries to cache per shard. The cache is disabled if this is 0.
+     */
+    public static final Setting<Integer> MAX_ENTRIES_PER_SHARD = Setting.intSetting(
+            "querqy.caches.term_query.max_entries_per_shard",
+            0, // disabled by default
+            0,
+            Setting.Property.NodeScope);
+
+    // null if the cache is disabled
+    private final Cache<Key, TermQueryCacheValue> cache;
+
+    // the mappings of the most recent query
+    private final AtomicReference<Object> mappingCacheKey = new AtomicReference<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ShardTermQueryCache(final Settings settings) {
+        final int maxEntries = MAX_ENTRIES_PER_SHARD.get(settings);
+        cache = maxEntries > 0
+                ? Caches.buildCache(TimeValue.ZERO, TimeValue.ZERO, maxEntries, null,
+                        notification -> {
+                            if (notification.getRemovalReason() == RemovalNotification.RemovalReason.EVICTED) {
+                                evictions.increment();
+                            }
+                        })
+                : null;
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Get a view of this cache for a query that is executed in the given context.
+     *
+     * @param context The shard context of the query
+     * @return The term query cache to be passed to Querqy, or null if the cache is disabled or the request defines
+     *         runtime fields
+     */
+    public TermQueryCache forContext(final SearchExecutionContext context) {
+        if (cache == null || Caches.hasRequestRuntimeFields(context)) {
+            return null;
+        }
+        return forMappings(context.mappingCacheKey());
+    }
+
+    /**
+     * Get a view of this cache for a query that uses the given mappings.
+     *
+     * @param mappingCacheKey The cache key of the mappings
+     * @return The term query cache to be passed to Querqy, or null if the cache is disabled
+     */
+    public TermQueryCache forMappings(final Object mappingCacheKey) {
+        if (cache == null) {
+            return null;
+        }
+        final Object currentMappingCacheKey = this.mappingCacheKey.get();
+        // only the query that swaps the mappings clears the cache, entries for the previous mappings can't be hit
+        // anymore
+        if (currentMappingCacheKey != mappingCacheKey
+                && this.mappingCacheKey.compareAndSet(currentMappingCacheKey, mappingCacheKey)) {
+            cache.invalidateAll();
+        }
+        return new TermQueryCache() {
+
+            @Override
+            public void put(final CacheKey cacheKey, final TermQueryCacheValue value) {
+                cache.put(new Key(mappingCacheKey, cacheKey), value);
+            }
+
+            @Override
+            public TermQueryCacheValue get(final CacheKey cacheKey) {
+                final TermQueryCacheValue value = cache.get(new Key(mappingCacheKey, cacheKey));
+                if (value == null) {
+                    misses.increment();
+                } else {
+                    hits.increment();
+                }
+                return value;
+            }
+        };
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    public CacheStats getStats() {
+        if (cache == null) {
+            return CacheStats.EMPTY;
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), cache.count(), CacheStats.UNKNOWN_SIZE);
+    }
+
+    private static final class Key {
+
+        final Object mappingCacheKey;
+        final CacheKey cacheKey;
+
+        Key(final Object mappingCacheKey, final CacheKey cacheKey) {
+            this.mappingCacheKey = mappingCacheKey;
+            this.cacheKey = cacheKey;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Key that = (Key) o;
+            return mappingCacheKey == that.mappingCacheKey && cacheKey.equals(that.cacheKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mappingCacheKey, cacheKey);
+        }
+    }
+}
@@ -31,6 +31,8 @@ import org.elasticsearch.xcontent.ObjectParser;
 import org.elasticsearch.xcontent.XContentBuilder;
 import org.elasticsearch.xcontent.XContentParser;
 import org.elasticsearch.index.query.AbstractQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryRewriteContext;
 import org.elasticsearch.index.query.SearchExecutionContext;
 import querqy.elasticsearch.QuerqyProcessor;
 import querqy.lucene.LuceneSearchEngineRequestAdapter;
@@ -216,6 +218,19 @@ public class QuerqyQueryBuilder extends AbstractQueryBuilder<QuerqyQueryBuilder>
         return builder;
     }
 
+    /**
+     * Makes sure that the rewriters of this query are loaded before the query is created on the shard. Rewriters that
+     * are not yet loaded on the data node are fetched asynchronously so that we don't have to block a search thread
+     * in {@link #doToQuery(SearchExecutionContext)}.
+     */
+    @Override
+    protected QueryBuilder doRewrite(final QueryRewriteContext queryRewriteContext) throws IOException {
+        if (querqyProcessor != null && queryRewriteContext.convertToDataRewriteContext() != null) {
+            querqyProcessor.registerRewriterLoading(this, queryRewriteContext);
+        }
+        return this;
+    }
+
     @Override
     protected Query doToQuery(final SearchExecutionContext context) throws IOException {
         try {
@@ -82,6 +82,11 @@ public class NumberUnitRewriterFactory extends ESRewriterFactory {
         return delegate;
     }
 
+    @Override
+    public boolean isShardDependent() {
+        return false;
+    }
+
     @Override
     public void configure(Map<String, Object> config) {
         final Object numberUnitConfig = config.get(KEY_CONFIG_PROPERTY);
@@ -63,11 +63,13 @@ public class RegexReplaceRewriterFactory extends ESRewriterFactory {
     @Override
     public List<String> validateConfiguration(final Map<String, Object> config) {
 
-        final String rules = (String) config.get(PROP_RULES);
-        if (rules == null) {
-            return Collections.singletonList("Property " + PROP_RULES + " not configured");
+        final List<String> errors = validateArguments(config);
+        if (!errors.isEmpty()) {
+            return errors;
         }
 
+        final String rules = (String) config.get(PROP_RULES);
+
         final InputStreamReader rulesReader = new InputStreamReader(
                 new ByteArrayInputStream(rules.getBytes(StandardCharsets.UTF_8)),
                 StandardCharsets.UTF_8);
@@ -83,8 +85,43 @@ public class RegexReplaceRewriterFactory extends ESRewriterFactory {
         return List.of();
     }
 
+    @Override
+    public List<String> validateAndMaybeConfigure(final Map<String, Object> config) {
+
+        final List<String> errors = validateArguments(config);
+        if (!errors.isEmpty()) {
+            return errors;
+        }
+
+        // building the rewriter validates the rules, so we can keep it
+        try {
+            configure(config);
+        } catch (final ElasticsearchException e) {
+            return Collections.singletonList("Cannot create rewriter: " + e.getMessage());
+        }
+
+        return List.of();
+    }
+
+    private static List<String> validateArguments(final Map<String, Object> config) {
+        if (config.get(PROP_RULES) == null) {
+            return Collections.singletonList("Property " + PROP_RULES + " not configured");
+        }
+        return List.of();
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return delegate != null;
+    }
+
     @Override
     public RewriterFactory createRewriterFactory(final IndexShard indexShard) {
         return delegate;
     }
+
+    @Override
+    public boolean isShardDependent() {
+        return false;
+    }
 }
@@ -70,11 +70,13 @@ public class ReplaceRewriterFactory extends ESRewriterFactory {
     @Override
     public List<String> validateConfiguration(Map<String, Object> config) {
 
-        final String rules = (String) config.get("rules");
-        if (rules == null) {
-            return Collections.singletonList("Property 'rules' not configured");
+        final List<String> errors = validateArguments(config);
+        if (errors != null) {
+            return errors;
         }
 
+        final String rules = (String) config.get("rules");
+
         final InputStreamReader rulesReader = new InputStreamReader(
                 new ByteArrayInputStream(rules.getBytes()));
 
@@ -83,13 +85,8 @@ public class ReplaceRewriterFactory extends ESRewriterFactory {
         final String inputDelimiter = ConfigUtils.getArg(config, "inputDelimiter", DEFAULT_INPUT_DELIMITER);
 
 
-        final QuerqyParserFactory querqyParser;
-        try {
-            querqyParser = ConfigUtils.getInstanceFromArg(config, "querqyParser", DEFAULT_RHS_QUERY_PARSER,
-                    QuerqyParserFactory.class);
-        } catch (final Exception e) {
-            return Collections.singletonList("Invalid attribute 'querqyParser': " + e.getMessage());
-        }
+        final QuerqyParserFactory querqyParser = ConfigUtils.getInstanceFromArg(config, "querqyParser",
+                DEFAULT_RHS_QUERY_PARSER, QuerqyParserFactory.class);
 
         try {
             new querqy.rewrite.contrib.ReplaceRewriterFactory(rewriterId, rulesReader, ignoreCase, inputDelimiter,
@@ -101,8 +98,52 @@ public class ReplaceRewriterFactory extends ESRewriterFactory {
         return null;
     }
 
+    @Override
+    public List<String> validateAndMaybeConfigure(final Map<String, Object> config) {
+
+        final List<String> errors = validateArguments(config);
+        if (errors != null) {
+            return errors;
+        }
+
+        // building the rewriter validates the rules, so we can keep it
+        try {
+            configure(config);
+        } catch (final ElasticsearchException e) {
+            return Collections.singletonList("Cannot create rewriter: " + e.getMessage());
+        }
+
+        return null;
+    }
+
+    private static List<String> validateArguments(final Map<String, Object> config) {
+
+        if (config.get("rules") == null) {
+            return Collections.singletonList("Property 'rules' not configured");
+        }
+
+        try {
+            ConfigUtils.getInstanceFromArg(config, "querqyParser", DEFAULT_RHS_QUERY_PARSER,
+                    QuerqyParserFactory.class);
+        } catch (final Exception e) {
+            return Collections.singletonList("Invalid attribute 'querqyParser': " + e.getMessage());
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return delegate != null;
+    }
+
     @Override
     public RewriterFactory createRewriterFactory(IndexShard indexShard) {
         return delegate;
     }
+
+    @Override
+    public boolean isShardDependent() {
+        return false;
+    }
 }
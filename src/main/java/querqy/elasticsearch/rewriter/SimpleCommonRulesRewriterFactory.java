@@ -87,18 +87,13 @@ public class SimpleCommonRulesRewriterFactory extends ESRewriterFactory {
 
     @Override
     public List<String> validateConfiguration(final Map<String, Object> config) {
-        final String rules = ConfigUtils.getStringArg(config, "rules",  null);
-        if (rules == null) {
-            return Collections.singletonList("Missing attribute 'rules'");
-        }
-        final QuerqyParserFactory querqyParser;
-        try {
-            querqyParser = ConfigUtils
-                    .getInstanceFromArg(config, "querqyParser", DEFAULT_RHS_QUERY_PARSER,
-                            QuerqyParserFactory.class);
-        } catch (final Exception e) {
-            return Collections.singletonList("Invalid attribute 'querqyParser': " + e.getMessage());
+        final List<String> errors = validateArguments(config);
+        if (errors != null) {
+            return errors;
         }
+        final String rules = ConfigUtils.getStringArg(config, "rules",  null);
+        final QuerqyParserFactory querqyParser = ConfigUtils
+                .getInstanceFromArg(config, "querqyParser", DEFAULT_RHS_QUERY_PARSER, QuerqyParserFactory.class);
 
 
         final boolean ignoreCase = ConfigUtils.getArg(config, "ignoreCase", true);
@@ -121,10 +116,50 @@ public class SimpleCommonRulesRewriterFactory extends ESRewriterFactory {
         return null;
     }
 
+    @Override
+    public List<String> validateAndMaybeConfigure(final Map<String, Object> config) {
+        final List<String> errors = validateArguments(config);
+        if (errors != null) {
+            return errors;
+        }
+
+        // building the rewriter validates the rules, so we can keep it
+        try {
+            configure(config);
+        } catch (final ElasticsearchException e) {
+            return Collections.singletonList("Cannot create rewriter: " + e.getMessage());
+        }
+
+        return null;
+    }
+
+    private static List<String> validateArguments(final Map<String, Object> config) {
+        if (ConfigUtils.getStringArg(config, "rules",  null) == null) {
+            return Collections.singletonList("Missing attribute 'rules'");
+        }
+        try {
+            ConfigUtils.getInstanceFromArg(config, "querqyParser", DEFAULT_RHS_QUERY_PARSER,
+                    QuerqyParserFactory.class);
+        } catch (final Exception e) {
+            return Collections.singletonList("Invalid attribute 'querqyParser': " + e.getMessage());
+        }
+        return null;
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return delegate != null;
+    }
+
     @Override
     public RewriterFactory createRewriterFactory(final IndexShard indexShard) {
         return delegate;
     }
 
+    @Override
+    public boolean isShardDependent() {
+        return false;
+    }
+
 
 }
@@ -0,0 +1,81 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch.rewriterstore;
+
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.ValidateActions;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Saves several rewriters at once. The definitions of the single rewriters are validated by
+ * {@link TransportBulkPutRewriterAction} so that they can be validated in parallel, {@link #validate()} only checks
+ * the rewriter ids.
+ */
+public class BulkPutRewriterRequest extends ActionRequest {
+
+    private final List<PutRewriterRequest> requests;
+
+    public BulkPutRewriterRequest(final StreamInput in) throws IOException {
+        super(in);
+        requests = in.readCollectionAsList(PutRewriterRequest::new);
+    }
+
+    public BulkPutRewriterRequest(final List<PutRewriterRequest> requests) {
+        super();
+        this.requests = requests;
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+
+        if (requests == null || requests.isEmpty()) {
+            return ValidateActions.addValidationError("No rewriters to save", null);
+        }
+
+        ActionRequestValidationException arve = null;
+        final Set<String> rewriterIds = new HashSet<>(requests.size());
+        for (final PutRewriterRequest request : requests) {
+            final String rewriterId = request.getRewriterId();
+            if (rewriterId == null || rewriterId.isEmpty()) {
+                arve = ValidateActions.addValidationError("Missing rewriter id", arve);
+            } else if (!rewriterIds.add(rewriterId)) {
+                arve = ValidateActions.addValidationError("Duplicate rewriter id: " + rewriterId, arve);
+            }
+        }
+
+        return arve;
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeCollection(requests);
+    }
+
+    public List<PutRewriterRequest> getRequests() {
+        return requests;
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch.rewriterstore;
+
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.xcontent.ToXContentObject;
+import org.elasticsearch.xcontent.XContentBuilder;
+
+import java.io.IOException;
+
+public class BulkPutRewriterResponse extends ActionResponse implements ToXContentObject {
+
+    private final BulkResponse bulkResponse;
+    // null if no rewriter could be saved
+    private final NodesReloadRewriterResponse reloadResponse;
+
+    public BulkPutRewriterResponse(final BulkResponse bulkResponse, final NodesReloadRewriterResponse reloadResponse) {
+        this.bulkResponse = bulkResponse;
+        this.reloadResponse = reloadResponse;
+    }
+
+    public BulkPutRewriterResponse(final StreamInput in) throws IOException {
+        bulkResponse = new BulkResponse(in);
+        reloadResponse = in.readOptionalWriteable(NodesReloadRewriterResponse::new);
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        bulkResponse.writeTo(out);
+        out.writeOptionalWriteable(reloadResponse);
+    }
+
+    @Override
+    public XContentBuilder toXContent(final XContentBuilder builder, final Params params) throws IOException {
+
+        builder.startObject();
+        builder.startObject("put");
+        builder.field("took", bulkResponse.getTookInMillis());
+        builder.field("errors", bulkResponse.hasFailures());
+        builder.startArray("items");
+        for (final BulkItemResponse item : bulkResponse) {
+            item.toXContent(builder, params);
+        }
+        builder.endArray();
+        builder.endObject();
+        if (reloadResponse != null) {
+            builder.field("reloaded", reloadResponse);
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    public BulkResponse getBulkResponse() {
+        return bulkResponse;
+    }
+
+    public NodesReloadRewriterResponse getReloadResponse() {
+        return reloadResponse;
+    }
+}
@@ -25,4 +25,12 @@ public interface Constants {
     String SETTINGS_QUERQY_INDEX_NUM_REPLICAS = "querqy.store.replicas";
 
     int DEFAULT_QUERQY_INDEX_NUM_REPLICAS = 1;
+
+    // Rewriters are only loaded on nodes that can hold shards. Reloading and clearing rewriters after they have been
+    // saved or deleted only needs to contact these nodes.
+    String REWRITER_NODES = "data:true";
+
+    // The id of the document in the Querqy index that maps rewriter aliases to rewriter ids. It can't be used as a
+    // rewriter id.
+    String REWRITER_ALIASES_ID = "_rewriter_aliases";
 }
@@ -17,6 +17,8 @@
  */
 package querqy.elasticsearch.rewriterstore;
 
+import org.elasticsearch.common.bytes.BytesReference;
+
 import java.util.Map;
 
 public class LoadRewriterConfig {
@@ -24,6 +26,7 @@ public class LoadRewriterConfig {
     private final RewriterConfigMapping configMapping;
     private final String rewriterId;
     private final Map<String, Object> luceneDoc;
+    private BytesReference configBytes;
 
     public LoadRewriterConfig(final String rewriterId, final Map<String, Object> luceneDoc) {
         this.configMapping = RewriterConfigMapping.getMapping(luceneDoc);
@@ -44,14 +47,25 @@ public class LoadRewriterConfig {
     }
 
     public Map<String, Object> getConfig() {
-        return configMapping.getConfig(rewriterId, luceneDoc);
+        return configMapping.parseConfig(rewriterId, getConfigBytes());
     }
 
-    public Map<String, Object> getInfoLoggingConfig() {
-        return configMapping.getInfoLoggingConfig(rewriterId, luceneDoc);
+    /**
+     * @return The size of the serialized config after decompression
+     */
+    public long getConfigSizeInBytes() {
+        return getConfigBytes().length();
     }
 
+    private BytesReference getConfigBytes() {
+        if (configBytes == null) {
+            configBytes = configMapping.getConfigBytes(rewriterId, luceneDoc);
+        }
+        return configBytes;
+    }
 
-
+    public Map<String, Object> getInfoLoggingConfig() {
+        return configMapping.getInfoLoggingConfig(rewriterId, luceneDoc);
+    }
 
 }
@@ -0,0 +1,35 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch.rewriterstore;
+
+import org.elasticsearch.action.ActionType;
+
+/**
+ * Collect rewriter cache and loader statistics from the nodes
+ */
+public class NodesQuerqyStatsAction extends ActionType<NodesQuerqyStatsResponse> {
+
+    public static final String NAME = "cluster:monitor/querqy/stats";
+    public static final NodesQuerqyStatsAction INSTANCE = new NodesQuerqyStatsAction(NAME);
+
+
+    protected NodesQuerqyStatsAction(final String name) {
+        super(name);
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch.rewriterstore;
+
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.action.support.nodes.BaseNodeResponse;
+import org.elasticsearch.action.support.nodes.BaseNodesResponse;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.xcontent.ToXContentObject;
+import org.elasticsearch.xcontent.XContentBuilder;
+import querqy.elasticsearch.RewriterStats;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+public class NodesQuerqyStatsResponse extends BaseNodesResponse<NodesQuerqyStatsResponse.NodeResponse>
+        implements ToXContentObject {
+
+
+    public NodesQuerqyStatsResponse(final ClusterName clusterName,
+                                    final List<NodesQuerqyStatsResponse.NodeResponse> responses,
+                                    final List<FailedNodeException> failures) {
+        super(clusterName, responses, failures);
+    }
+
+    public NodesQuerqyStatsResponse(final StreamInput in) throws IOException {
+        super(in);
+    }
+
+    @Override
+    protected List<NodeResponse> readNodesFrom(final StreamInput in) throws IOException {
+        return in.readCollectionAsList(NodesQuerqyStatsResponse.NodeResponse::readNodeResponse);
+    }
+
+    @Override
+    protected void writeNodesTo(final StreamOutput out, final List<NodeResponse> nodes) throws IOException {
+        out.writeCollection(nodes);
+    }
+
+    /**
+     * @return The sum of the statistics of all nodes
+     */
+    public RewriterStats getTotal() {
+        RewriterStats total = RewriterStats.EMPTY;
+        for (final NodeResponse node : getNodes()) {
+            total = total.add(node.getStats());
+        }
+        return total;
+    }
+
+    @Override
+    public XContentBuilder toXContent(final XContentBuilder builder, final Params params) throws IOException {
+        builder.startObject();
+        builder.startObject("_all");
+        getTotal().toXContent(builder, params);
+        builder.endObject();
+        builder.startObject("nodes");
+        for (final NodesQuerqyStatsResponse.NodeResponse node : getNodes()) {
+            builder.startObject(node.getNode().getId());
+            node.toXContent(builder, params);
+            builder.endObject();
+        }
+        builder.endObject();
+        builder.endObject();
+        return builder;
+    }
+
+    public static class NodeResponse extends BaseNodeResponse implements ToXContentObject {
+
+        private final RewriterStats stats;
+
+        public NodeResponse(final StreamInput in) throws IOException {
+            super(in);
+            stats = new RewriterStats(in);
+        }
+
+        public NodeResponse(final DiscoveryNode node, final RewriterStats stats) {
+            super(node);
+            this.stats = stats;
+        }
+
+        public RewriterStats getStats() {
+            return stats;
+        }
+
+        @Override
+        public void writeTo(final StreamOutput out) throws IOException {
+            super.writeTo(out);
+            stats.writeTo(out);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final NodesQuerqyStatsResponse.NodeResponse that = (NodesQuerqyStatsResponse.NodeResponse) o;
+            return Objects.equals(getNode(), that.getNode()) && Objects.equals(stats, that.stats);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(getNode(), stats);
+        }
+
+        static NodesQuerqyStatsResponse.NodeResponse readNodeResponse(final StreamInput in) throws IOException {
+            return new NodesQuerqyStatsResponse.NodeResponse(in);
+        }
+
+        @Override
+        public XContentBuilder toXContent(final XContentBuilder builder, final Params params) throws IOException {
+            builder.field("name", getNode().getName());
+            return stats.toXContent(builder, params);
+        }
+
+        @Override
+        public boolean isFragment() {
+            return true;
+        }
+    }
+}
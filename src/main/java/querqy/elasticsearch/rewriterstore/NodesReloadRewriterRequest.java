@@ -23,47 +23,124 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.transport.AbstractTransportRequest;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 
 public class NodesReloadRewriterRequest extends BaseNodesRequest {
 
-    private final String rewriterId;
+    private final List<String> rewriterIds;
+    private final List<RewriterDocument> documents;
+    private boolean load = false;
 
     public NodesReloadRewriterRequest(final String rewriterId, final String... nodesIds) {
+        this(Collections.singletonList(rewriterId), nodesIds);
+    }
+
+    /**
+     * Reload several rewriters with a single broadcast.
+     *
+     * @param rewriterIds The ids of the rewriters to reload
+     * @param nodesIds The nodes to send the request to, all nodes if empty
+     */
+    public NodesReloadRewriterRequest(final List<String> rewriterIds, final String... nodesIds) {
+        this(rewriterIds, Collections.emptyList(), nodesIds);
+    }
+
+    /**
+     * Reload several rewriters with a single broadcast. The nodes build the rewriters from the given documents
+     * instead of fetching them from the Querqy index.
+     *
+     * @param rewriterIds The ids of the rewriters to reload
+     * @param documents The saved rewriter documents. Can be a subset of the rewriterIds.
+     * @param nodesIds The nodes to send the request to, all nodes if empty
+     */
+    public NodesReloadRewriterRequest(final List<String> rewriterIds, final List<RewriterDocument> documents,
+                                      final String... nodesIds) {
         super(nodesIds);
-        this.rewriterId = rewriterId;
+        if (rewriterIds.isEmpty()) {
+            throw new IllegalArgumentException("rewriterIds must not be empty");
+        }
+        this.rewriterIds = rewriterIds;
+        this.documents = documents;
     }
 
     public NodeRequest newNodeRequest() {
-        return new NodeRequest(rewriterId);
+        return new NodeRequest(rewriterIds, documents, load);
     }
 
-    public String getRewriterId() {
-        return rewriterId;
+    /**
+     * @param load Whether the nodes should also load rewriters that they haven't loaded yet. Defaults to false, in
+     *             which case such rewriters will be loaded on first use.
+     * @return This request
+     */
+    public NodesReloadRewriterRequest setLoad(final boolean load) {
+        this.load = load;
+        return this;
+    }
+
+    public boolean isLoad() {
+        return load;
+    }
+
+    public List<String> getRewriterIds() {
+        return rewriterIds;
+    }
+
+    public List<RewriterDocument> getDocuments() {
+        return documents;
     }
 
 
     public static class NodeRequest extends AbstractTransportRequest {
 
-        String rewriterId;
+        final List<String> rewriterIds;
+        final List<RewriterDocument> documents;
+        final boolean load;
 
         public NodeRequest(final StreamInput in) throws IOException {
             super(in);
-            rewriterId = in.readString();
+            rewriterIds = in.readStringCollectionAsList();
+            documents = in.readCollectionAsList(RewriterDocument::new);
+            load = in.readBoolean();
         }
 
         public NodeRequest(final String rewriterId) {
+            this(Collections.singletonList(rewriterId), Collections.emptyList());
+        }
+
+        public NodeRequest(final List<String> rewriterIds, final List<RewriterDocument> documents) {
+            this(rewriterIds, documents, false);
+        }
+
+        public NodeRequest(final List<String> rewriterIds, final List<RewriterDocument> documents,
+                           final boolean load) {
             super();
-            this.rewriterId = rewriterId;
+            this.rewriterIds = rewriterIds;
+            this.documents = documents;
+            this.load = load;
         }
 
         @Override
         public void writeTo(final StreamOutput out) throws IOException {
             super.writeTo(out);
-            out.writeString(rewriterId);
+            out.writeStringCollection(rewriterIds);
+            out.writeCollection(documents);
+            out.writeBoolean(load);
+        }
+
+        public List<String> getRewriterIds() {
+            return rewriterIds;
+        }
+
+        /**
+         * @return The documents that were sent with the request. Rewriters without a document have to be fetched.
+         */
+        public List<RewriterDocument> getDocuments() {
+            return documents;
         }
 
-        public String getRewriterId() {
-            return rewriterId;
+        public boolean isLoad() {
+            return load;
         }
 
     }
@@ -26,14 +26,20 @@ import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.xcontent.ToXContent;
 import org.elasticsearch.xcontent.ToXContentObject;
 import org.elasticsearch.xcontent.XContentBuilder;
 import org.elasticsearch.xcontent.XContentFactory;
+import querqy.elasticsearch.RewriterRegistry.ReloadResult;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 
 public class NodesReloadRewriterResponse extends BaseNodesResponse<NodesReloadRewriterResponse.NodeResponse>
         implements ToXContentObject {
@@ -66,12 +72,23 @@ public class NodesReloadRewriterResponse extends BaseNodesResponse<NodesReloadRe
         for (final NodeResponse node : getNodes()) {
             builder.startObject(node.getNode().getId());
             builder.field("name", node.getNode().getName());
+            builder.field("result", node.getReloadResult().name().toLowerCase(Locale.ROOT));
             final Exception e = node.reloadException();
             if (e != null) {
                 builder.startObject("reload_exception");
                 ElasticsearchException.generateThrowableXContent(builder, params, e);
                 builder.endObject();
             }
+            final Map<String, ReloadResult> rewriterResults = node.getRewriterResults();
+            if (!rewriterResults.isEmpty()) {
+                builder.startObject("rewriters");
+                for (final Map.Entry<String, ReloadResult> entry : rewriterResults.entrySet()) {
+                    builder.field(entry.getKey(), entry.getValue().name().toLowerCase(Locale.ROOT));
+                }
+                builder.endObject();
+            }
+            builder.humanReadableField("reload_time_in_millis", "reload_time",
+                    TimeValue.timeValueMillis(node.getReloadTimeMillis()));
             builder.endObject();
         }
         builder.endObject();
@@ -118,21 +135,67 @@ public class NodesReloadRewriterResponse extends BaseNodesResponse<NodesReloadRe
     public static class NodeResponse extends BaseNodeResponse {
 
         private final Exception reloadException;
+        private final ReloadResult reloadResult;
+        private final long reloadTimeMillis;
+        private final Map<String, ReloadResult> rewriterResults;
 
         public NodeResponse(final StreamInput in) throws IOException {
             super(in);
             reloadException = in.readBoolean() ? in.readException() : null;
+            reloadResult = in.readEnum(ReloadResult.class);
+            reloadTimeMillis = in.readVLong();
+            rewriterResults = new TreeMap<>(in.readMap(StreamInput::readString,
+                    input -> input.readEnum(ReloadResult.class)));
         }
 
         public NodeResponse(final DiscoveryNode node, final Exception reloadException) {
+            this(node, reloadException, reloadException == null ? ReloadResult.RELOADED : ReloadResult.FAILED, 0L);
+        }
+
+        public NodeResponse(final DiscoveryNode node, final Exception reloadException,
+                            final ReloadResult reloadResult, final long reloadTimeMillis) {
+            this(node, reloadException, reloadResult, reloadTimeMillis, Collections.emptyMap());
+        }
+
+        /**
+         * @param node The node
+         * @param reloadException The first exception that occurred when reloading, null if all rewriters were reloaded
+         * @param reloadResult The overall result
+         * @param reloadTimeMillis The time it took to reload all rewriters on this node
+         * @param rewriterResults The result per rewriter id
+         */
+        public NodeResponse(final DiscoveryNode node, final Exception reloadException,
+                            final ReloadResult reloadResult, final long reloadTimeMillis,
+                            final Map<String, ReloadResult> rewriterResults) {
             super(node);
             this.reloadException = reloadException;
+            this.reloadResult = Objects.requireNonNull(reloadResult);
+            this.reloadTimeMillis = reloadTimeMillis;
+            this.rewriterResults = new TreeMap<>(rewriterResults);
+        }
+
+        public ReloadResult getReloadResult() {
+            return reloadResult;
+        }
+
+        /**
+         * @return The result per rewriter id. Empty if the node didn't report results per rewriter.
+         */
+        public Map<String, ReloadResult> getRewriterResults() {
+            return rewriterResults;
         }
 
         public Exception reloadException() {
             return this.reloadException;
         }
 
+        /**
+         * @return The time it took to reload the rewriter on this node, including the shard-level work
+         */
+        public long getReloadTimeMillis() {
+            return reloadTimeMillis;
+        }
+
         @Override
         public void writeTo(final StreamOutput out) throws IOException {
             super.writeTo(out);
@@ -142,6 +205,9 @@ public class NodesReloadRewriterResponse extends BaseNodesResponse<NodesReloadRe
             } else {
                 out.writeBoolean(false);
             }
+            out.writeEnum(reloadResult);
+            out.writeVLong(reloadTimeMillis);
+            out.writeMap(rewriterResults, StreamOutput::writeString, StreamOutput::writeEnum);
         }
 
         @Override
@@ -153,6 +219,10 @@ public class NodesReloadRewriterResponse extends BaseNodesResponse<NodesReloadRe
                 return false;
             }
             final NodesReloadRewriterResponse.NodeResponse that = (NodesReloadRewriterResponse.NodeResponse) o;
+            if (reloadResult != that.reloadResult || reloadTimeMillis != that.reloadTimeMillis
+                    || !rewriterResults.equals(that.rewriterResults)) {
+                return false;
+            }
             // We cannot rely on the Exception to implement equals(), users of NodesReloadRewriterResponse will
             // be interested just in the message anyway
             if (reloadException == null) {
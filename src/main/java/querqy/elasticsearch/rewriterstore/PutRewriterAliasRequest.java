@@ -0,0 +1,80 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch.rewriterstore;
+
+import static org.elasticsearch.action.ValidateActions.addValidationError;
+
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+/**
+ * Points a rewriter alias to a rewriter. Queries can use the alias in place of the rewriter id.
+ */
+public class PutRewriterAliasRequest extends ActionRequest {
+
+    private final String alias;
+    private final String rewriterId;
+
+    public PutRewriterAliasRequest(final StreamInput in) throws IOException {
+        super(in);
+        alias = in.readString();
+        rewriterId = in.readString();
+    }
+
+    public PutRewriterAliasRequest(final String alias, final String rewriterId) {
+        super();
+        this.alias = alias;
+        this.rewriterId = rewriterId;
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        ActionRequestValidationException validationException = null;
+        if (alias == null || alias.isEmpty()) {
+            validationException = addValidationError("alias must not be empty", null);
+        } else if (Constants.REWRITER_ALIASES_ID.equals(alias)) {
+            validationException = addValidationError("Reserved rewriter id: " + alias, null);
+        }
+        if (rewriterId == null || rewriterId.isEmpty()) {
+            validationException = addValidationError("rewriter must not be empty", validationException);
+        } else if (rewriterId.equals(alias)) {
+            validationException = addValidationError("An alias cannot point to itself: " + alias,
+                    validationException);
+        }
+        return validationException;
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeString(alias);
+        out.writeString(rewriterId);
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    public String getRewriterId() {
+        return rewriterId;
+    }
+}
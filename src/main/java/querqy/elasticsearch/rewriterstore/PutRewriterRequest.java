@@ -34,6 +34,8 @@ public class PutRewriterRequest extends ActionRequest {
 
     private final Map<String, Object> content;
     private final String rewriterId;
+    // the factory that was configured by validate() on this node, not serialized
+    private ESRewriterFactory validatedFactory;
 
     public PutRewriterRequest(final StreamInput in) throws IOException {
         super(in);
@@ -50,6 +52,10 @@ public class PutRewriterRequest extends ActionRequest {
     @Override
     public ActionRequestValidationException validate() {
 
+        if (Constants.REWRITER_ALIASES_ID.equals(rewriterId)) {
+            return ValidateActions.addValidationError("Reserved rewriter id: " + rewriterId, null);
+        }
+
         final ESRewriterFactory esRewriterFactory;
         try {
             esRewriterFactory = ESRewriterFactory.loadInstance(rewriterId, content, "class");
@@ -86,7 +92,7 @@ public class PutRewriterRequest extends ActionRequest {
         final List<String> errors;
         try {
             config =(Map<String, Object>) content.getOrDefault("config", Collections.emptyMap());
-            errors = esRewriterFactory.validateConfiguration(config);
+            errors = esRewriterFactory.validateAndMaybeConfigure(config);
         } catch (final Exception e) {
             return ValidateActions.addValidationError("Invalid rewriter configuration: " + e.getMessage(),
                     null);
@@ -98,6 +104,7 @@ public class PutRewriterRequest extends ActionRequest {
             return arve;
         }
 
+        validatedFactory = esRewriterFactory.isConfigured() ? esRewriterFactory : null;
         return null;
     }
 
@@ -116,4 +123,17 @@ public class PutRewriterRequest extends ActionRequest {
         return content;
     }
 
+    /**
+     * Get the factory that was configured when this request was validated on this node and release it from this
+     * request.
+     *
+     * @return The configured factory, or null if validation didn't configure the factory or if it has been taken
+     * already
+     */
+    public ESRewriterFactory takeValidatedFactory() {
+        final ESRewriterFactory factory = validatedFactory;
+        validatedFactory = null;
+        return factory;
+    }
+
 }
@@ -0,0 +1,349 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch.rewriterstore;
+
+import static querqy.elasticsearch.rewriterstore.Constants.DEFAULT_QUERQY_INDEX_NUM_REPLICAS;
+import static querqy.elasticsearch.rewriterstore.Constants.QUERQY_INDEX_NAME;
+import static querqy.elasticsearch.rewriterstore.Constants.REWRITER_ALIASES_ID;
+import static querqy.elasticsearch.rewriterstore.Constants.SETTINGS_QUERQY_INDEX_NUM_REPLICAS;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.admin.indices.create.CreateIndexRequest;
+import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
+import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
+import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsResponse;
+import org.elasticsearch.action.admin.indices.mapping.put.PutMappingRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.master.AcknowledgedResponse;
+import org.elasticsearch.client.internal.Client;
+import org.elasticsearch.client.internal.IndicesAdminClient;
+import org.elasticsearch.cluster.metadata.MappingMetadata;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.core.CheckedRunnable;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.IndexNotFoundException;
+import org.elasticsearch.xcontent.XContentType;
+import querqy.elasticsearch.RewriterAliases;
+
+/**
+ * Creates the Querqy index and keeps its mappings up to date before rewriters are saved to it.
+ */
+class QuerqyIndex {
+
+    private static final Logger LOGGER = LogManager.getLogger(QuerqyIndex.class);
+    private static final TimeValue TIMEOUT = new TimeValue(30, TimeUnit.SECONDS);
+
+    private final Client client;
+    private final Settings settings;
+    private volatile boolean mappingsVersionChecked = false;
+
+    QuerqyIndex(final Client client, final Settings settings) {
+        this.client = client;
+        this.settings = settings;
+    }
+
+    /**
+     * Makes sure that the Querqy index exists and uses the current mappings and then runs next. Failures are passed
+     * to the listener.
+     *
+     * @param next The action to run once the index is ready
+     * @param listener The listener to notify about failures
+     */
+    @SuppressWarnings("unchecked")
+    void ensureCurrentMappings(final CheckedRunnable<Exception> next, final ActionListener<?> listener) {
+
+        final IndicesAdminClient indicesClient = client.admin().indices();
+        final Runnable runNext = () -> {
+            try {
+                next.run();
+            } catch (final Exception e) {
+                listener.onFailure(e);
+            }
+        };
+
+        indicesClient.prepareGetMappings(TIMEOUT, QUERQY_INDEX_NAME).execute(new ActionListener<>() {
+
+            @Override
+            public void onResponse(final GetMappingsResponse getMappingsResponse) {
+
+                final Map<String, MappingMetadata> mappings = getMappingsResponse.getMappings();
+
+                if (!mappingsVersionChecked) {
+
+                    final Map<String, Object> properties = (Map<String, Object>) mappings.get(QUERQY_INDEX_NAME)
+                            .getSourceAsMap().get("properties");
+                    // the aliases property was added after mapping version 4, so we check for it separately
+                    final Runnable addAliases = properties.containsKey(RewriterAliases.PROP_ALIASES)
+                            ? runNext : () -> addAliases(indicesClient, runNext, listener);
+                    final Runnable update3To4 = () -> update3To4(indicesClient, addAliases, listener);
+                    if (!properties.containsKey("info_logging")) {
+                        update1To3(indicesClient, update3To4, listener);
+                    } else if (!properties.containsKey(RewriterConfigMapping.V3_MAPPING.getConfigStringProperty())) {
+                        update2To3(indicesClient, update3To4, listener);
+                    } else if (!properties.containsKey(RewriterConfigMapping.CURRENT.getConfigStringProperty())) {
+                        update3To4.run();
+                    } else {
+                        addAliases.run();
+                    }
+                } else {
+                    runNext.run();
+                }
+
+            }
+
+            @Override
+            public void onFailure(final Exception e) {
+                if ((e instanceof IndexNotFoundException) || (e.getCause() instanceof IndexNotFoundException)) {
+                    createIndex(indicesClient, runNext, listener);
+                } else {
+                    listener.onFailure(e);
+                }
+            }
+        });
+
+    }
+
+    /**
+     * Checks that none of the rewriter ids is already used as a rewriter alias. Queries would resolve the alias and
+     * never use a rewriter with the same id.
+     *
+     * @param rewriterIds The ids of the rewriters that are going to be saved
+     * @param listener The listener to notify, it fails with an {@link IllegalArgumentException} if an id is an alias
+     */
+    void checkNotAliases(final Collection<String> rewriterIds, final ActionListener<Void> listener) {
+        client.prepareGet(QUERQY_INDEX_NAME, REWRITER_ALIASES_ID).execute(listener.delegateFailureAndWrap(
+                (l, response) -> {
+                    final RewriterAliases aliases = RewriterAliases.fromDocument(response);
+                    for (final String rewriterId : rewriterIds) {
+                        if (aliases.isAlias(rewriterId)) {
+                            throw new IllegalArgumentException("Rewriter id " + rewriterId
+                                    + " is already used as a rewriter alias");
+                        }
+                    }
+                    l.onResponse(null);
+                }));
+    }
+
+    private void createIndex(final IndicesAdminClient indicesClient, final Runnable next,
+                             final ActionListener<?> listener) {
+
+        indicesClient.create(buildCreateQuerqyIndexRequest(indicesClient),
+
+                new ActionListener<>() {
+                    @Override
+                    public void onResponse(final CreateIndexResponse createIndexResponse) {
+                        LOGGER.info("Created index {}", QUERQY_INDEX_NAME);
+                        mappingsVersionChecked = true;
+                        next.run();
+                    }
+
+                    @Override
+                    public void onFailure(final Exception e) {
+                        listener.onFailure(e);
+                    }
+                });
+
+    }
+
+    protected void update1To3(final IndicesAdminClient indicesClient, final Runnable next,
+                              final ActionListener<?> listener) {
+        final PutMappingRequest request = new PutMappingRequest(QUERQY_INDEX_NAME).source(
+                """
+                        {
+                            "properties": {
+                              "info_logging": {
+                                "properties": {
+                                  "sinks": {"type" : "keyword" }
+                                }
+                              },
+                              "config_v_003": {
+                                "type" : "keyword",
+                                "doc_values": false,
+                                "index": false
+                              }
+                            }
+                        }""", XContentType.JSON
+        );
+
+        indicesClient.putMapping(request, new ActionListener<>() {
+            @Override
+            public void onResponse(final AcknowledgedResponse acknowledgedResponse) {
+                if (!acknowledgedResponse.isAcknowledged()) {
+                    LOGGER.info("Mapping update for info_logging property and config_v_003 to index {} not " +
+                            "(fully) acknowledged", QUERQY_INDEX_NAME);
+                    listener.onFailure(new IllegalStateException("Adding info_logging to mappings not acknowledged"));
+                } else {
+                    LOGGER.info("Added info_logging property and config_v_003 to index {}", QUERQY_INDEX_NAME);
+                    mappingsVersionChecked = true;
+                    next.run();
+                }
+            }
+
+            @Override
+            public void onFailure(final Exception e) {
+                listener.onFailure(e);
+            }
+        });
+
+    }
+
+    protected void update2To3(final IndicesAdminClient indicesClient, final Runnable next,
+                              final ActionListener<?> listener) {
+        final PutMappingRequest request = new PutMappingRequest(QUERQY_INDEX_NAME).source(
+                """
+                        {
+                            "properties": {
+                              "config_v_003": {
+                                "type" : "keyword",
+                                "doc_values": false,
+                                "index": false
+                              }
+                            }
+                        }""", XContentType.JSON
+        );
+
+        indicesClient.putMapping(request, new ActionListener<>() {
+            @Override
+            public void onResponse(final AcknowledgedResponse acknowledgedResponse) {
+                if (!acknowledgedResponse.isAcknowledged()) {
+
+                    LOGGER.info("Adding config_v_003 to mappings not (fully) acknowledged");
+                    listener.onFailure(new IllegalStateException("Adding info_logging to mappings not acknowledged"));
+                } else {
+                    LOGGER.info("Added config_v_003 property to index {}", QUERQY_INDEX_NAME);
+                    mappingsVersionChecked = true;
+                    next.run();
+                }
+            }
+
+            @Override
+            public void onFailure(final Exception e) {
+                listener.onFailure(e);
+            }
+        });
+
+    }
+
+    protected void update3To4(final IndicesAdminClient indicesClient, final Runnable next,
+                              final ActionListener<?> listener) {
+        final PutMappingRequest request = new PutMappingRequest(QUERQY_INDEX_NAME).source(
+                """
+                        {
+                            "properties": {
+                              "config_v_004": {
+                                "type" : "binary"
+                              }
+                            }
+                        }""", XContentType.JSON
+        );
+
+        indicesClient.putMapping(request, new ActionListener<>() {
+            @Override
+            public void onResponse(final AcknowledgedResponse acknowledgedResponse) {
+                if (!acknowledgedResponse.isAcknowledged()) {
+                    LOGGER.info("Adding config_v_004 to mappings not (fully) acknowledged");
+                    listener.onFailure(new IllegalStateException("Adding config_v_004 to mappings not acknowledged"));
+                } else {
+                    LOGGER.info("Added config_v_004 property to index {}", QUERQY_INDEX_NAME);
+                    mappingsVersionChecked = true;
+                    next.run();
+                }
+            }
+
+            @Override
+            public void onFailure(final Exception e) {
+                listener.onFailure(e);
+            }
+        });
+
+    }
+
+    protected void addAliases(final IndicesAdminClient indicesClient, final Runnable next,
+                              final ActionListener<?> listener) {
+        final PutMappingRequest request = new PutMappingRequest(QUERQY_INDEX_NAME).source(
+                """
+                        {
+                            "properties": {
+                              "aliases": {
+                                "type" : "object",
+                                "enabled": false
+                              }
+                            }
+                        }""", XContentType.JSON
+        );
+
+        indicesClient.putMapping(request, new ActionListener<>() {
+            @Override
+            public void onResponse(final AcknowledgedResponse acknowledgedResponse) {
+                if (!acknowledgedResponse.isAcknowledged()) {
+                    LOGGER.info("Adding aliases to mappings not (fully) acknowledged");
+                    listener.onFailure(new IllegalStateException("Adding aliases to mappings not acknowledged"));
+                } else {
+                    LOGGER.info("Added aliases property to index {}", QUERQY_INDEX_NAME);
+                    mappingsVersionChecked = true;
+                    next.run();
+                }
+            }
+
+            @Override
+            public void onFailure(final Exception e) {
+                listener.onFailure(e);
+            }
+        });
+
+    }
+
+    protected CreateIndexRequest buildCreateQuerqyIndexRequest(final IndicesAdminClient indicesClient) {
+        final CreateIndexRequestBuilder createIndexRequestBuilder = indicesClient.prepareCreate(QUERQY_INDEX_NAME);
+        final int numReplicas = settings.getAsInt(SETTINGS_QUERQY_INDEX_NUM_REPLICAS, DEFAULT_QUERQY_INDEX_NUM_REPLICAS);
+        return createIndexRequestBuilder.setMapping(readUtf8Resource("querqy-mapping.json"))
+                .setSettings(Settings.builder().put("number_of_replicas", numReplicas))
+                .request();
+    }
+
+    /**
+     * Builds the request for indexing a rewriter. The caller is responsible for setting the refresh policy.
+     *
+     * @param request The rewriter to save
+     * @return The index request
+     * @throws IOException if the rewriter cannot be converted into the document source
+     */
+    static IndexRequest buildIndexRequest(final PutRewriterRequest request) throws IOException {
+        return new IndexRequest(QUERQY_INDEX_NAME)
+                .id(request.getRewriterId())
+                .create(false)
+                .source(RewriterConfigMapping.toLuceneSource(request.getContent()),
+                        RewriterConfigMapping.getLuceneSourceType());
+    }
+
+    private static String readUtf8Resource(final String name) {
+        final Scanner scanner = new Scanner(QuerqyIndex.class.getClassLoader().getResourceAsStream(name),
+                StandardCharsets.UTF_8).useDelimiter("\\A");
+        return scanner.hasNext() ? scanner.next() : "";
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch.rewriterstore;
+
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.client.internal.ElasticsearchClient;
+import org.elasticsearch.client.internal.node.NodeClient;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.xcontent.XContentType;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.action.RestToXContentListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Saves several rewriters at once. The request body maps rewriter ids to rewriter definitions:
+ *
+ * <pre>
+ * {
+ *     "rewriters": {
+ *         "common_rules": { "class": "...", "config": { ... } },
+ *         "replace": { "class": "...", "config": { ... } }
+ *     }
+ * }
+ * </pre>
+ */
+public class RestBulkPutRewriterAction extends BaseRestHandler {
+
+    public static final String FIELD_REWRITERS = "rewriters";
+
+    @Override
+    public String getName() {
+        return "Save Querqy rewriters in bulk";
+    }
+
+    @Override
+    public List<Route> routes() {
+        return List.of(new Route(RestRequest.Method.PUT, "/_querqy/rewriter/_bulk"),
+                new Route(RestRequest.Method.POST, "/_querqy/rewriter/_bulk"));
+    }
+
+    @Override
+    protected RestChannelConsumer prepareRequest(final RestRequest request, final NodeClient client) {
+
+        final BulkPutRewriterRequestBuilder requestBuilder = createRequestBuilder(request, client);
+
+        return (channel) -> requestBuilder.execute(
+                new RestToXContentListener<BulkPutRewriterResponse>(channel));
+    }
+
+    @SuppressWarnings("unchecked")
+    BulkPutRewriterRequestBuilder createRequestBuilder(final RestRequest request, final NodeClient client) {
+
+        final Map<String, Object> source = XContentHelper
+                .convertToMap(request.content(), true, XContentType.JSON).v2();
+
+        final Object rewritersObj = source.get(FIELD_REWRITERS);
+        if (!(rewritersObj instanceof Map)) {
+            throw new IllegalArgumentException("RestBulkPutRewriterAction expects an object '" + FIELD_REWRITERS
+                    + "' that maps rewriter ids to rewriter definitions");
+        }
+
+        final Map<String, Object> rewriters = (Map<String, Object>) rewritersObj;
+        final List<PutRewriterRequest> requests = new ArrayList<>(rewriters.size());
+
+        for (final Map.Entry<String, Object> entry : rewriters.entrySet()) {
+
+            final String rewriterId = entry.getKey().trim();
+            if (rewriterId.isEmpty()) {
+                throw new IllegalArgumentException("RestBulkPutRewriterAction: rewriter id must not be empty");
+            }
+
+            if (!(entry.getValue() instanceof Map)) {
+                throw new IllegalArgumentException("RestBulkPutRewriterAction: definition of rewriter " + rewriterId
+                        + " must be an object");
+            }
+
+            requests.add(new PutRewriterRequest(rewriterId, (Map<String, Object>) entry.getValue()));
+        }
+
+        return new BulkPutRewriterRequestBuilder(client, BulkPutRewriterAction.INSTANCE,
+                new BulkPutRewriterRequest(requests));
+    }
+
+
+    public static class BulkPutRewriterRequestBuilder
+            extends ActionRequestBuilder<BulkPutRewriterRequest, BulkPutRewriterResponse> {
+
+        public BulkPutRewriterRequestBuilder(final ElasticsearchClient client, final BulkPutRewriterAction action,
+                                             final BulkPutRewriterRequest request) {
+            super(client, action, request);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch.rewriterstore;
+
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.client.internal.ElasticsearchClient;
+import org.elasticsearch.client.internal.node.NodeClient;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.action.RestToXContentListener;
+import org.elasticsearch.xcontent.XContentType;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Points a rewriter alias to a rewriter: <code>PUT /_querqy/rewriter_alias/products_rules {"rewriter":
+ * "products_rules_v2"}</code>
+ */
+public class RestPutRewriterAliasAction extends BaseRestHandler {
+
+    public static final String PARAM_ALIAS = "alias";
+    public static final String FIELD_REWRITER = "rewriter";
+
+    @Override
+    public String getName() {
+        return "Save a Querqy rewriter alias";
+    }
+
+    @Override
+    public List<Route> routes() {
+        return Collections.singletonList(new Route(RestRequest.Method.PUT, "/_querqy/rewriter_alias/{alias}"));
+    }
+
+    @Override
+    protected RestChannelConsumer prepareRequest(final RestRequest request, final NodeClient client) {
+
+        final PutRewriterAliasRequestBuilder requestBuilder = createRequestBuilder(request, client);
+
+        return (channel) -> requestBuilder.execute(new RestToXContentListener<>(channel));
+    }
+
+    PutRewriterAliasRequestBuilder createRequestBuilder(final RestRequest request, final NodeClient client) {
+        String alias = request.param(PARAM_ALIAS);
+        if (alias == null) {
+            throw new IllegalArgumentException("RestPutRewriterAliasAction requires alias parameter");
+        }
+
+        alias = alias.trim();
+        if (alias.isEmpty()) {
+            throw new IllegalArgumentException("RestPutRewriterAliasAction: alias parameter must not be empty");
+        }
+
+        final Map<String, Object> source = XContentHelper
+                .convertToMap(request.content(), false, XContentType.JSON).v2();
+
+        final Object rewriterId = source.get(FIELD_REWRITER);
+        if (!(rewriterId instanceof String)) {
+            throw new IllegalArgumentException("RestPutRewriterAliasAction: String property expected: "
+                    + FIELD_REWRITER);
+        }
+
+        return new PutRewriterAliasRequestBuilder(client, PutRewriterAliasAction.INSTANCE,
+                new PutRewriterAliasRequest(alias, ((String) rewriterId).trim()));
+    }
+
+
+    public static class PutRewriterAliasRequestBuilder
+            extends ActionRequestBuilder<PutRewriterAliasRequest, PutRewriterAliasResponse> {
+
+        public PutRewriterAliasRequestBuilder(final ElasticsearchClient client, final PutRewriterAliasAction action,
+                                              final PutRewriterAliasRequest request) {
+            super(client, action, request);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch.rewriterstore;
+
+import org.elasticsearch.client.internal.node.NodeClient;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.action.RestToXContentListener;
+
+import java.util.Arrays;
+import java.util.List;
+
+
+public class RestQuerqyStatsAction extends BaseRestHandler {
+
+    public static final String PARAM_NODE_ID = "nodeId";
+
+    @Override
+    public String getName() {
+        return "Querqy rewriter statistics";
+    }
+
+    @Override
+    public List<Route> routes() {
+        return Arrays.asList(
+                new Route(RestRequest.Method.GET, "/_querqy/_stats"),
+                new Route(RestRequest.Method.GET, "/_querqy/_stats/{nodeId}"));
+    }
+
+    @Override
+    protected RestChannelConsumer prepareRequest(final RestRequest request, final NodeClient client) {
+
+        final NodesQuerqyStatsRequest statsRequest = new NodesQuerqyStatsRequest(
+                Strings.splitStringByCommaToArray(request.param(PARAM_NODE_ID)));
+
+        return (channel) -> client.execute(NodesQuerqyStatsAction.INSTANCE, statsRequest,
+                new RestToXContentListener<>(channel));
+    }
+
+}
@@ -17,20 +17,21 @@
  */
 package querqy.elasticsearch.rewriterstore;
 
-import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.common.ParsingException;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.xcontent.XContentParser;
 import org.elasticsearch.xcontent.XContentParserConfiguration;
 import org.elasticsearch.xcontent.XContentType;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.io.OutputStream;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -38,13 +39,74 @@ import java.util.Map;
 
 public abstract class RewriterConfigMapping {
 
-    public static final int CURRENT_MAPPING_VERSION = 3;
+    public static final int CURRENT_MAPPING_VERSION = 4;
 
     public static final String PROP_VERSION = "version";
     public static final String PROP_TYPE = "type";
 
+    /**
+     * Version 4 stores the config as compressed SMILE in a binary field
+     */
     public final static RewriterConfigMapping CURRENT = new RewriterConfigMapping() {
 
+        @Override
+        public String getConfigStringProperty() {
+            return "config_v_004";
+        }
+
+        @Override
+        public final String getRewriterClassNameProperty() {
+            return "class";
+        }
+
+        @Override
+        public String getInfoLoggingProperty() {
+            return "info_logging";
+        }
+
+        @Override
+        public String getRewriterClassName(final String rewriterId, final Map<String, Object> source) {
+            return (String) source.get(getRewriterClassNameProperty());
+        }
+
+        @Override
+        public Map<String, Object> getInfoLoggingConfig(final String rewriterId, final Map<String, Object> source) {
+            return (Map<String, Object>) source.get(getInfoLoggingProperty());
+        }
+
+        @Override
+        public BytesReference getConfigBytes(final String rewriterId, final Map<String, Object> source) {
+
+            final Object configValue = source.get(getConfigStringProperty());
+
+            final BytesReference compressed;
+            if (configValue == null) {
+                return BytesArray.EMPTY;
+            } else if (configValue instanceof byte[]) {
+                compressed = new BytesArray((byte[]) configValue);
+            } else if (configValue instanceof String) {
+                // the source was converted to JSON, which encodes binary values in base64
+                compressed = new BytesArray(Base64.getDecoder().decode((String) configValue));
+            } else {
+                throw new IllegalArgumentException("Unexpected config value class: " + configValue);
+            }
+
+            try {
+                return CompressorFactory.uncompressIfNeeded(compressed);
+            } catch (final IOException e) {
+                throw new ElasticsearchException("Could not decompress 'config' of rewriter " + rewriterId, e);
+            }
+        }
+
+        @Override
+        public XContentType getConfigContentType() {
+            return XContentType.SMILE;
+        }
+
+    };
+
+    public final static RewriterConfigMapping V3_MAPPING = new RewriterConfigMapping() {
+
         @Override
         public String getConfigStringProperty() {
             return "config_v_003";
@@ -121,6 +183,10 @@ public abstract class RewriterConfigMapping {
             return CURRENT;
         }
 
+        if (version == 3) {
+            return V3_MAPPING;
+        }
+
         throw new IllegalArgumentException("Unknown rewriter config version: " + version);
 
     }
@@ -138,63 +204,33 @@ public abstract class RewriterConfigMapping {
 
         final Map<String, Object> config = (Map<String, Object>) putRequestContent.get("config");
         if (config != null) {
-            final String jsonString = mapToJsonString(config);
-            // See constraints in org.elasticsearch.index.mapper.KeywordFieldMapper.indexValue()
-            source.put(CURRENT.getConfigStringProperty(), stringToSourceValue(jsonString, 32766));
+            source.put(CURRENT.getConfigStringProperty(), toCompressedSmile(config));
         }
 
         return source;
     }
 
     /**
-     * Lucene doesn't allow us to save Strings in keywords fields if their UTF-8-encoded version exceeds a certain byte
-     * array length. This method splits Strings into an array of Strings whose elements are guaranteed not to exceed
-     * that limit. If the input string does not exceed the limit, the method returns the input string.
-     *
-     * @param string The input string
-     * @param maxUTFByteLength The max length
-     * @return A String or an array of Strings
+     * The content type of the documents that are created from {@link #toLuceneSource(Map)}. SMILE keeps the binary
+     * config as raw bytes instead of encoding it in base64.
      */
-    public static Object stringToSourceValue(final String string, final int maxUTFByteLength) {
-
-        final BytesRef binaryValue = new BytesRef(string);
-
-        if (binaryValue.length <= maxUTFByteLength) {
-            return string;
-        }
-
-        if (maxUTFByteLength < 3) {
-            // max UTF encoding length for a single char is 3 bytes
-            throw new IllegalArgumentException("maxUTFByteLength >=3 expected");
-        }
-
-        final List<String> splits = new ArrayList<>();
-
-        String s = string;
-        while (new BytesRef(s).length > maxUTFByteLength) {
-
-            String split = s;
-            do {
-
-                int length = Math.max(1, Math.min((int) Math.floor(split.length() * 0.95), maxUTFByteLength));
-
-                split = split.substring(0, length);
-
-            } while (new BytesRef(split).length > maxUTFByteLength);
-
-            splits.add(split);
-            s = s.substring(split.length());
-        }
-        if (s.length() > 0) {
-            splits.add(s);
-        }
-
-        return splits.toArray(new String[0]);
-
-
+    public static XContentType getLuceneSourceType() {
+        return XContentType.SMILE;
     }
 
     public Map<String, Object> getConfig(final String rewriterId, final Map<String, Object> source) {
+        return parseConfig(rewriterId, getConfigBytes(rewriterId, source));
+    }
+
+    /**
+     * Get the serialized rewriter config from the source document.
+     *
+     * @param rewriterId The rewriter id
+     * @param source The source document
+     * @return The uncompressed config in the format of {@link #getConfigContentType()}, empty if the rewriter has no
+     * config
+     */
+    public BytesReference getConfigBytes(final String rewriterId, final Map<String, Object> source) {
 
         final Object configStringValue = source.get(getConfigStringProperty());
 
@@ -209,39 +245,51 @@ public abstract class RewriterConfigMapping {
             throw new IllegalArgumentException("Unexpected config value class: " + configStringValue);
         }
 
-        final Map<String, Object> config;
+        return configStr != null ? new BytesArray(configStr) : BytesArray.EMPTY;
+    }
 
-        if (configStr != null && configStr.length() > 0) {
+    /**
+     * @return The content type of the bytes returned by {@link #getConfigBytes(String, Map)}
+     */
+    public XContentType getConfigContentType() {
+        return XContentType.JSON;
+    }
 
-            final XContentParser parser;
-            try {
-                parser = XContentHelper.createParser(XContentParserConfiguration.EMPTY, new BytesArray(configStr),
-                        XContentType.JSON);
-            } catch (final IOException e) {
-                throw new ElasticsearchException(e);
-            }
-            try {
-                config = parser.map();
-            } catch (final IOException e) {
-                throw new ParsingException(parser.getTokenLocation(), "Could not load 'config' of rewriter "
-                        + rewriterId);
-            }
+    /**
+     * Parse the config that was returned by {@link #getConfigBytes(String, Map)}.
+     *
+     * @param rewriterId The rewriter id
+     * @param configBytes The serialized config
+     * @return The config
+     */
+    public Map<String, Object> parseConfig(final String rewriterId, final BytesReference configBytes) {
 
-        } else {
-            config = Collections.emptyMap();
+        if (configBytes.length() == 0) {
+            return Collections.emptyMap();
         }
 
-        return config;
+        final XContentParser parser;
+        try {
+            parser = XContentHelper.createParser(XContentParserConfiguration.EMPTY, configBytes,
+                    getConfigContentType());
+        } catch (final IOException e) {
+            throw new ElasticsearchException(e);
+        }
+        try (parser) {
+            return parser.map();
+        } catch (final IOException e) {
+            throw new ParsingException(parser.getTokenLocation(), "Could not load 'config' of rewriter "
+                    + rewriterId);
+        }
     }
 
-    private static String mapToJsonString(final Map<String, Object> map) throws IOException {
-        try (final ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
-            final XContentBuilder builder = new XContentBuilder(XContentType.JSON.xContent(), bos);
-            builder.value(map);
-            builder.flush();
-            builder.close();
-            return new String(bos.toByteArray(), StandardCharsets.UTF_8);
+    static byte[] toCompressedSmile(final Map<String, Object> config) throws IOException {
+        final BytesStreamOutput bos = new BytesStreamOutput();
+        try (OutputStream compressed = CompressorFactory.COMPRESSOR.threadLocalOutputStream(bos);
+             XContentBuilder builder = new XContentBuilder(XContentType.SMILE.xContent(), compressed)) {
+            builder.map(config);
         }
+        return BytesReference.toBytes(bos.bytes());
     }
 
 }
@@ -0,0 +1,108 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch.rewriterstore;
+
+import static querqy.elasticsearch.rewriterstore.Constants.QUERQY_INDEX_NAME;
+
+import org.elasticsearch.action.DocWriteResponse;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.index.get.GetResult;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * A saved rewriter document that is sent to the nodes along with a {@link NodesReloadRewriterRequest} so that they
+ * don't have to fetch it from the Querqy index.
+ */
+public class RewriterDocument implements Writeable {
+
+    private final String rewriterId;
+    private final long version;
+    private final long seqNo;
+    private final long primaryTerm;
+    private final BytesReference source;
+
+    public RewriterDocument(final StreamInput in) throws IOException {
+        rewriterId = in.readString();
+        version = in.readLong();
+        seqNo = in.readZLong();
+        primaryTerm = in.readVLong();
+        source = in.readBytesReference();
+    }
+
+    public RewriterDocument(final String rewriterId, final long version, final long seqNo, final long primaryTerm,
+                            final BytesReference source) {
+        this.rewriterId = rewriterId;
+        this.version = version;
+        this.seqNo = seqNo;
+        this.primaryTerm = primaryTerm;
+        this.source = source;
+    }
+
+    /**
+     * @param response The response of saving the rewriter
+     * @param source The source that was saved
+     * @return The saved document
+     */
+    public static RewriterDocument of(final DocWriteResponse response, final BytesReference source) {
+        return new RewriterDocument(response.getId(), response.getVersion(), response.getSeqNo(),
+                response.getPrimaryTerm(), source);
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        out.writeString(rewriterId);
+        out.writeLong(version);
+        out.writeZLong(seqNo);
+        out.writeVLong(primaryTerm);
+        out.writeBytesReference(source);
+    }
+
+    /**
+     * @return The document as if it had been fetched from the Querqy index
+     */
+    public GetResponse toGetResponse() {
+        return new GetResponse(new GetResult(QUERQY_INDEX_NAME, rewriterId, seqNo, primaryTerm, version, true, source,
+                Collections.emptyMap(), Collections.emptyMap()));
+    }
+
+    public String getRewriterId() {
+        return rewriterId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getSeqNo() {
+        return seqNo;
+    }
+
+    public long getPrimaryTerm() {
+        return primaryTerm;
+    }
+
+    public BytesReference getSource() {
+        return source;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch.rewriterstore;
+
+import static querqy.elasticsearch.rewriterstore.BulkPutRewriterAction.NAME;
+import static querqy.elasticsearch.rewriterstore.Constants.QUERQY_INDEX_NAME;
+import static querqy.elasticsearch.rewriterstore.Constants.REWRITER_NODES;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.ActionRunnable;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.HandledTransportAction;
+import org.elasticsearch.action.support.RefCountingListener;
+import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.client.internal.Client;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.injection.guice.Inject;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+import querqy.elasticsearch.ESRewriterFactory;
+import querqy.elasticsearch.RewriterRegistry;
+
+/**
+ * Saves several rewriters with a single bulk request and a single refresh of the Querqy index. The saved rewriters
+ * are then reloaded with a single {@link NodesReloadRewriterAction} broadcast, which carries the saved documents.
+ */
+public class TransportBulkPutRewriterAction extends HandledTransportAction<BulkPutRewriterRequest,
+        BulkPutRewriterResponse> {
+
+    private static final Logger LOGGER = LogManager.getLogger(TransportBulkPutRewriterAction.class);
+
+    private final Client client;
+    private final ClusterService clusterService;
+    private final Executor validationExecutor;
+    private final QuerqyIndex querqyIndex;
+    private final RewriterRegistry rewriterRegistry;
+
+    @Inject
+    public TransportBulkPutRewriterAction(
+            final ActionFilters actionFilters,
+            final Client client,
+            final ClusterService clusterService,
+            final Settings settings,
+            final TransportService transportService,
+            final RewriterRegistry rewriterRegistry
+    ) {
+        super(NAME, false, transportService, actionFilters, BulkPutRewriterRequest::new,
+                clusterService.threadPool().executor(ThreadPool.Names.MANAGEMENT));
+        this.clusterService = clusterService;
+        this.client = client;
+        this.validationExecutor = clusterService.threadPool().generic();
+        this.querqyIndex = new QuerqyIndex(client, settings);
+        this.rewriterRegistry = rewriterRegistry;
+    }
+
+    @Override
+    protected void doExecute(final Task task, final BulkPutRewriterRequest request,
+                             final ActionListener<BulkPutRewriterResponse> listener) {
+
+        final Map<String, ESRewriterFactory> validatedFactories = ConcurrentCollections.newConcurrentMap();
+        validateRewriters(request, validatedFactories, listener.delegateFailureAndWrap((l, ignored) ->
+                querqyIndex.ensureCurrentMappings(() -> querqyIndex.checkNotAliases(
+                        request.getRequests().stream().map(PutRewriterRequest::getRewriterId).toList(),
+                        l.delegateFailureAndWrap((l2, checked) -> saveRewriters(task, request, validatedFactories,
+                                l2))), l)));
+
+    }
+
+    /**
+     * Validates the rewriter definitions in parallel. The listener fails with all validation errors, prefixed by the
+     * rewriter id, if any of the definitions is invalid. The factories that were configured during validation are
+     * collected by rewriter id if this node can reuse them, otherwise they are dropped right away.
+     */
+    protected void validateRewriters(final BulkPutRewriterRequest request,
+                                     final Map<String, ESRewriterFactory> validatedFactories,
+                                     final ActionListener<Void> listener) {
+
+        final boolean keepValidatedFactories = rewriterRegistry.keepsValidatedFactories();
+
+        final Map<String, ActionRequestValidationException> errors = ConcurrentCollections.newConcurrentMap();
+
+        try (RefCountingListener refs = new RefCountingListener(listener.delegateFailureAndWrap((l, ignored) -> {
+            if (errors.isEmpty()) {
+                l.onResponse(null);
+            } else {
+                ActionRequestValidationException arve = null;
+                for (final PutRewriterRequest rewriterRequest : request.getRequests()) {
+                    final ActionRequestValidationException error = errors.get(rewriterRequest.getRewriterId());
+                    if (error != null) {
+                        for (final String message : error.validationErrors()) {
+                            arve = addValidationError(rewriterRequest.getRewriterId(), message, arve);
+                        }
+                    }
+                }
+                l.onFailure(arve);
+            }
+        }))) {
+
+            for (final PutRewriterRequest rewriterRequest : request.getRequests()) {
+                validationExecutor.execute(ActionRunnable.run(refs.acquire(), () -> {
+                    final ActionRequestValidationException error = rewriterRequest.validate();
+                    final ESRewriterFactory validatedFactory = rewriterRequest.takeValidatedFactory();
+                    if (error != null) {
+                        errors.put(rewriterRequest.getRewriterId(), error);
+                    } else if (validatedFactory != null && keepValidatedFactories) {
+                        validatedFactories.put(rewriterRequest.getRewriterId(), validatedFactory);
+                    }
+                }));
+            }
+        }
+    }
+
+    private static ActionRequestValidationException addValidationError(final String rewriterId, final String message,
+                                                                       final ActionRequestValidationException arve) {
+        final ActionRequestValidationException result = arve != null ? arve : new ActionRequestValidationException();
+        result.addValidationError("Rewriter " + rewriterId + ": " + message);
+        return result;
+    }
+
+    protected void saveRewriters(final Task task, final BulkPutRewriterRequest request,
+                                 final Map<String, ESRewriterFactory> validatedFactories,
+                                 final ActionListener<BulkPutRewriterResponse> listener) throws IOException {
+
+        final BulkRequest bulkRequest = new BulkRequest(QUERQY_INDEX_NAME);
+        final Map<String, BytesReference> sources = new HashMap<>();
+        for (final PutRewriterRequest rewriterRequest : request.getRequests()) {
+            final IndexRequest indexRequest = QuerqyIndex.buildIndexRequest(rewriterRequest);
+            rewriterRegistry.checkFitsInCache(rewriterRequest.getRewriterId(), indexRequest.sourceAsMap());
+            sources.put(rewriterRequest.getRewriterId(), indexRequest.source());
+            // hand the factories over to the registry, which charges them to the circuit breaker
+            final ESRewriterFactory validatedFactory = validatedFactories.remove(rewriterRequest.getRewriterId());
+            if (validatedFactory != null) {
+                // don't build the rewriter again when it is reloaded on this node
+                rewriterRegistry.putValidatedFactory(rewriterRequest.getRewriterId(), indexRequest, validatedFactory);
+            }
+            bulkRequest.add(indexRequest);
+        }
+        bulkRequest.setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
+        bulkRequest.setParentTask(clusterService.localNode().getId(), task.getId());
+
+        client.bulk(bulkRequest, new ActionListener<>() {
+            @Override
+            public void onResponse(final BulkResponse bulkResponse) {
+
+                final List<String> savedRewriterIds = new ArrayList<>(request.getRequests().size());
+                final List<RewriterDocument> savedDocuments = new ArrayList<>(request.getRequests().size());
+                for (final BulkItemResponse item : bulkResponse) {
+                    if (item.isFailed()) {
+                        LOGGER.error("Could not save rewriter " + item.getId(), item.getFailure().getCause());
+                    } else {
+                        savedRewriterIds.add(item.getId());
+                        savedDocuments.add(RewriterDocument.of(item.getResponse(), sources.get(item.getId())));
+                    }
+                }
+
+                if (savedRewriterIds.isEmpty()) {
+                    listener.onResponse(new BulkPutRewriterResponse(bulkResponse, null));
+                    return;
+                }
+
+                LOGGER.info("Saved rewriters {}", savedRewriterIds);
+                client.execute(NodesReloadRewriterAction.INSTANCE,
+                        new NodesReloadRewriterRequest(savedRewriterIds, savedDocuments, REWRITER_NODES),
+                        listener.delegateFailureAndWrap((l, reloadResponse) ->
+                                l.onResponse(new BulkPutRewriterResponse(bulkResponse, reloadResponse))));
+            }
+
+            @Override
+            public void onFailure(final Exception e) {
+                LOGGER.error("Could not save rewriters", e);
+                listener.onFailure(e);
+            }
+        });
+    }
+
+}
@@ -18,6 +18,7 @@
 package querqy.elasticsearch.rewriterstore;
 
 import static querqy.elasticsearch.rewriterstore.Constants.QUERQY_INDEX_NAME;
+import static querqy.elasticsearch.rewriterstore.Constants.REWRITER_NODES;
 import static org.elasticsearch.action.ActionListener.wrap;
 
 import org.elasticsearch.action.ActionListener;
@@ -60,7 +61,7 @@ public class TransportDeleteRewriterAction  extends HandledTransportAction<Delet
                 // regardless)
 
                 client.execute(NodesClearRewriterCacheAction.INSTANCE,
-                        new NodesClearRewriterCacheRequest(request.getRewriterId()),
+                        new NodesClearRewriterCacheRequest(request.getRewriterId(), REWRITER_NODES),
                         wrap(
                                 (clearResponse) -> listener.onResponse(new DeleteRewriterResponse(deleteResponse,
                                         clearResponse)),
@@ -0,0 +1,86 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch.rewriterstore;
+
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.nodes.TransportNodesAction;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.injection.guice.Inject;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.plugins.ActionPlugin;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+import querqy.elasticsearch.RewriterShardContexts;
+
+import java.io.IOException;
+import java.util.List;
+
+public class TransportNodesQuerqyStatsAction extends TransportNodesAction<
+        NodesQuerqyStatsRequest,
+        NodesQuerqyStatsResponse,
+        NodesQuerqyStatsRequest.NodeRequest,
+        NodesQuerqyStatsResponse.NodeResponse,
+        ActionPlugin.ActionHandler> {
+
+    protected RewriterShardContexts rewriterShardContexts;
+
+    @Inject
+    public TransportNodesQuerqyStatsAction(final ThreadPool threadPool, final ClusterService clusterService,
+                                           final TransportService transportService,
+                                           final ActionFilters actionFilters,
+                                           final RewriterShardContexts rewriterShardContexts) {
+        super(
+            NodesQuerqyStatsAction.NAME,
+            clusterService,
+            transportService,
+            actionFilters,
+            NodesQuerqyStatsRequest.NodeRequest::new,
+            threadPool.executor(ThreadPool.Names.MANAGEMENT)
+        );
+
+        this.rewriterShardContexts = rewriterShardContexts;
+    }
+
+    @Override
+    protected NodesQuerqyStatsResponse newResponse(final NodesQuerqyStatsRequest request,
+                                                   final List<NodesQuerqyStatsResponse.NodeResponse> nodeResponses,
+                                                   final List<FailedNodeException> failures) {
+        return new NodesQuerqyStatsResponse(clusterService.getClusterName(), nodeResponses, failures);
+    }
+
+    @Override
+    protected NodesQuerqyStatsRequest.NodeRequest newNodeRequest(final NodesQuerqyStatsRequest request) {
+        return request.newNodeRequest();
+    }
+
+    @Override
+    protected NodesQuerqyStatsResponse.NodeResponse newNodeResponse(final StreamInput in,
+                                                                    final DiscoveryNode discoveryNode)
+            throws IOException {
+        return new NodesQuerqyStatsResponse.NodeResponse(in);
+    }
+
+    @Override
+    protected NodesQuerqyStatsResponse.NodeResponse nodeOperation(final NodesQuerqyStatsRequest.NodeRequest request,
+                                                                  final Task task) {
+        return new NodesQuerqyStatsResponse.NodeResponse(clusterService.localNode(), rewriterShardContexts.getStats());
+    }
+}
@@ -17,23 +17,37 @@
  */
 package querqy.elasticsearch.rewriterstore;
 
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRunnable;
 import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.RefCountingListener;
 import org.elasticsearch.action.support.nodes.TransportNodesAction;
 import org.elasticsearch.client.internal.Client;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.injection.guice.Inject;
 import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.plugins.ActionPlugin;
 import org.elasticsearch.tasks.Task;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
+import querqy.elasticsearch.QuerqyPlugin;
+import querqy.elasticsearch.RewriterRegistry.ReloadResult;
 import querqy.elasticsearch.RewriterShardContexts;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class TransportNodesReloadRewriterAction extends TransportNodesAction<
         NodesReloadRewriterRequest,
@@ -45,6 +59,7 @@ public class TransportNodesReloadRewriterAction extends TransportNodesAction<
     protected RewriterShardContexts rewriterShardContexts;
     protected Client client;
     protected IndicesService indexServices;
+    protected Executor reloadExecutor;
 
     @Inject
     public TransportNodesReloadRewriterAction(final ThreadPool threadPool,
@@ -60,8 +75,9 @@ public class TransportNodesReloadRewriterAction extends TransportNodesAction<
 			transportService,
 			actionFilters,
 			NodesReloadRewriterRequest.NodeRequest::new,
-			threadPool.executor(ThreadPool.Names.MANAGEMENT));
+			threadPool.executor(QuerqyPlugin.RELOAD_THREAD_POOL_NAME));
 		this.rewriterShardContexts = rewriterShardContexts;
+		this.reloadExecutor = threadPool.executor(QuerqyPlugin.RELOAD_THREAD_POOL_NAME);
 		this.client = client;
 		this.indexServices = indexServices;
     }
@@ -87,13 +103,67 @@ public class TransportNodesReloadRewriterAction extends TransportNodesAction<
     @Override
     protected NodesReloadRewriterResponse.NodeResponse nodeOperation(
             final NodesReloadRewriterRequest.NodeRequest request, final Task task) {
-        try {
-            rewriterShardContexts.reloadRewriter(request.getRewriterId());
-            return new NodesReloadRewriterResponse.NodeResponse(clusterService.localNode(), null);
-        } catch (final Exception e) {
-            return new NodesReloadRewriterResponse.NodeResponse(clusterService.localNode(), e);
+        // TransportNodesAction only calls nodeOperationAsync, which we override. Blocking here on the reloads, which run
+        // on the small querqy_reload pool, could deadlock if the caller is on that pool itself.
+        assert false : "nodeOperationAsync must be used";
+        throw new UnsupportedOperationException("The reload node operation only runs asynchronously");
+    }
+
+    @Override
+    protected void nodeOperationAsync(final NodesReloadRewriterRequest.NodeRequest request, final Task task,
+                                      final ActionListener<NodesReloadRewriterResponse.NodeResponse> listener) {
+        final long start = System.nanoTime();
+        final Map<String, ReloadResult> rewriterResults = ConcurrentCollections.newConcurrentMap();
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final Map<String, RewriterDocument> documents = new HashMap<>();
+        for (final RewriterDocument document : request.getDocuments()) {
+            documents.put(document.getRewriterId(), document);
+        }
+
+        // the rewriters are reloaded concurrently on the reload thread pool, the node responds once all are done
+        try (RefCountingListener refs = new RefCountingListener(ActionListener.running(() -> {
+            final Exception e = failure.get();
+            listener.onResponse(new NodesReloadRewriterResponse.NodeResponse(clusterService.localNode(), e,
+                    e != null ? ReloadResult.FAILED : summarize(rewriterResults.values()),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), rewriterResults));
+        }))) {
+
+            for (final String rewriterId : request.getRewriterIds()) {
+                final ActionListener<Void> ref = refs.acquire();
+                final RewriterDocument document = documents.get(rewriterId);
+                final GetResponse pushedDocument = document != null ? document.toGetResponse() : null;
+                final ActionListener<ReloadResult> rewriterListener = new ActionListener<>() {
+
+                    @Override
+                    public void onResponse(final ReloadResult reloadResult) {
+                        rewriterResults.put(rewriterId, reloadResult);
+                        ref.onResponse(null);
+                    }
+
+                    @Override
+                    public void onFailure(final Exception e) {
+                        rewriterResults.put(rewriterId, ReloadResult.FAILED);
+                        failure.accumulateAndGet(e, ExceptionsHelper::useOrSuppress);
+                        ref.onResponse(null);
+                    }
+                };
+                reloadExecutor.execute(ActionRunnable.wrap(rewriterListener, l -> rewriterShardContexts
+                        .reloadRewriter(rewriterId, pushedDocument, request.isLoad(), reloadExecutor, l)));
+            }
         }
     }
 
+    static ReloadResult summarize(final Collection<ReloadResult> results) {
+        if (results.contains(ReloadResult.FAILED)) {
+            return ReloadResult.FAILED;
+        }
+        if (results.contains(ReloadResult.RELOADED)) {
+            return ReloadResult.RELOADED;
+        }
+        if (results.contains(ReloadResult.LOADED)) {
+            return ReloadResult.LOADED;
+        }
+        return results.contains(ReloadResult.UNCHANGED) ? ReloadResult.UNCHANGED : ReloadResult.NOT_LOADED;
+    }
 
 }
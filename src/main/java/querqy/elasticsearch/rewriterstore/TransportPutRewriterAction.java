@@ -18,55 +18,39 @@
 package querqy.elasticsearch.rewriterstore;
 
 import static org.elasticsearch.action.ActionListener.wrap;
-import static querqy.elasticsearch.rewriterstore.Constants.DEFAULT_QUERQY_INDEX_NUM_REPLICAS;
-import static querqy.elasticsearch.rewriterstore.Constants.QUERQY_INDEX_NAME;
-import static querqy.elasticsearch.rewriterstore.Constants.SETTINGS_QUERQY_INDEX_NUM_REPLICAS;
+import static querqy.elasticsearch.rewriterstore.Constants.REWRITER_NODES;
 import static querqy.elasticsearch.rewriterstore.PutRewriterAction.NAME;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.Map;
-import java.util.Scanner;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import java.util.Collections;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.DocWriteResponse;
-import org.elasticsearch.action.admin.indices.create.CreateIndexRequest;
-import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
-import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
-import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsResponse;
-import org.elasticsearch.action.admin.indices.mapping.put.PutMappingRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.support.ActionFilters;
 import org.elasticsearch.action.support.HandledTransportAction;
 import org.elasticsearch.action.support.WriteRequest;
-import org.elasticsearch.action.support.master.AcknowledgedResponse;
 import org.elasticsearch.client.internal.Client;
-import org.elasticsearch.client.internal.IndicesAdminClient;
-import org.elasticsearch.cluster.metadata.MappingMetadata;
 import org.elasticsearch.cluster.service.ClusterService;
-import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.injection.guice.Inject;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.threadpool.ThreadPool;
-import org.elasticsearch.xcontent.XContentType;
-import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.tasks.Task;
 import org.elasticsearch.transport.TransportService;
+import querqy.elasticsearch.ESRewriterFactory;
+import querqy.elasticsearch.RewriterRegistry;
 
 public class TransportPutRewriterAction extends HandledTransportAction<PutRewriterRequest, PutRewriterResponse> {
 
     private static final Logger LOGGER = LogManager.getLogger(TransportPutRewriterAction.class);
-    private static final TimeValue TIMEOUT = new TimeValue(30, TimeUnit.SECONDS);
 
     private final Client client;
     private final ClusterService clusterService;
-    private final Settings settings;
-    private boolean mappingsVersionChecked = false;
+    private final QuerqyIndex querqyIndex;
+    private final RewriterRegistry rewriterRegistry;
 
     @Inject
     public TransportPutRewriterAction(
@@ -74,214 +58,51 @@ public class TransportPutRewriterAction extends HandledTransportAction<PutRewrit
             final Client client,
             final ClusterService clusterService,
             final Settings settings,
-            final TransportService transportService
+            final TransportService transportService,
+            final RewriterRegistry rewriterRegistry
     ) {
         super(NAME, false, transportService, actionFilters, PutRewriterRequest::new, clusterService.threadPool().executor(ThreadPool.Names.MANAGEMENT));
         this.clusterService = clusterService;
         this.client = client;
-        this.settings = settings;
+        this.querqyIndex = new QuerqyIndex(client, settings);
+        this.rewriterRegistry = rewriterRegistry;
     }
 
     @Override
     protected void doExecute(final Task task, final PutRewriterRequest request,
                              final ActionListener<PutRewriterResponse> listener) {
 
-        final IndicesAdminClient indicesClient = client.admin().indices();
+        // the rewriter that was built while validating the request is of no use if this node doesn't load rewriters
+        final ESRewriterFactory validatedFactory = request.takeValidatedFactory();
+        final ESRewriterFactory reusableFactory = rewriterRegistry.keepsValidatedFactories() ? validatedFactory : null;
 
-        indicesClient.prepareGetMappings(TIMEOUT, QUERQY_INDEX_NAME).execute(new ActionListener<>() {
-
-            @Override
-            public void onResponse(final GetMappingsResponse getMappingsResponse) {
-
-                final Map<String, MappingMetadata> mappings = getMappingsResponse.getMappings();
-
-                if (!mappingsVersionChecked) {
-
-                    final Map<String, Object> properties = (Map<String, Object>) mappings.get(QUERQY_INDEX_NAME)
-                            .getSourceAsMap().get("properties");
-                    if (!properties.containsKey("info_logging")) {
-                        try {
-                            update1To3(indicesClient, () -> {
-                                try {
-                                    saveRewriter(task, request, listener);
-                                } catch (final Exception e) {
-                                    listener.onFailure(e);
-                                }
-                            }, listener);
-
-                        } catch (final Exception e) {
-                            listener.onFailure(e);
-                        }
-
-                    } else if (!properties.containsKey(RewriterConfigMapping.CURRENT.getConfigStringProperty())) {
-                        try {
-                            update2To3(indicesClient, () -> {
-                                try {
-                                    saveRewriter(task, request, listener);
-                                } catch (final Exception e) {
-                                    listener.onFailure(e);
-                                }
-                            }, listener);
-                        } catch (final Exception e) {
-                            listener.onFailure(e);
-                        }
-
-                    } else {
-                        try {
-                            saveRewriter(task, request, listener);
-                        } catch (final IOException e) {
-                            listener.onFailure(e);
-                        }
-                    }
-                } else {
-                    try {
-                        saveRewriter(task, request, listener);
-                    } catch (final IOException e) {
-                        listener.onFailure(e);
-                    }
-                }
-
-            }
-
-            @Override
-            public void onFailure(final Exception e) {
-                if ((e instanceof IndexNotFoundException) || (e.getCause() instanceof IndexNotFoundException)) {
-                    createIndex(task, request, listener, indicesClient);
-                } else {
-                    listener.onFailure(e);
-                }
-            }
-        });
-
-    }
-
-    private void createIndex(final Task task, final PutRewriterRequest request,
-                             final ActionListener<PutRewriterResponse> listener, final IndicesAdminClient indicesClient) {
-
-        indicesClient.create(buildCreateQuerqyIndexRequest(indicesClient),
-
-                new ActionListener<>() {
-                    @Override
-                    public void onResponse(final CreateIndexResponse createIndexResponse) {
-                        LOGGER.info("Created index {}", QUERQY_INDEX_NAME);
-                        mappingsVersionChecked = true;
-
-                        try {
-                            saveRewriter(task, request, listener);
-                        } catch (final IOException e) {
-                            listener.onFailure(e);
-                        }
-
-                    }
-
-                    @Override
-                    public void onFailure(final Exception e) {
-                        listener.onFailure(e);
-                    }
-                });
-
-    }
-
-    protected void update1To3(final IndicesAdminClient indicesClient, final Runnable next,
-                              final ActionListener<PutRewriterResponse> listener) throws ExecutionException,
-            InterruptedException {
-        final PutMappingRequest request = new PutMappingRequest(QUERQY_INDEX_NAME).source(
-                """
-                        {
-                            "properties": {
-                              "info_logging": {
-                                "properties": {
-                                  "sinks": {"type" : "keyword" }
-                                }
-                              },
-                              "config_v_003": {
-                                "type" : "keyword",
-                                "doc_values": false,
-                                "index": false
-                              }
-                            }
-                        }""", XContentType.JSON
-        );
-
-        indicesClient.putMapping(request, new ActionListener<>() {
-            @Override
-            public void onResponse(final AcknowledgedResponse acknowledgedResponse) {
-                if (!acknowledgedResponse.isAcknowledged()) {
-                    LOGGER.info("Mapping update for info_logging property and config_v_003 to index {} not " +
-                            "(fully) acknowledged", QUERQY_INDEX_NAME);
-                    listener.onFailure(new IllegalStateException("Adding info_logging to mappings not acknowledged"));
-                } else {
-                    LOGGER.info("Added info_logging property and config_v_003 to index {}", QUERQY_INDEX_NAME);
-                    mappingsVersionChecked = true;
-                    next.run();
-                }
-            }
-
-            @Override
-            public void onFailure(final Exception e) {
-                listener.onFailure(e);
-            }
-        });
-
-    }
-
-    protected void update2To3(final IndicesAdminClient indicesClient, final Runnable next,
-                              final ActionListener<PutRewriterResponse> listener) throws ExecutionException,
-            InterruptedException {
-        final PutMappingRequest request = new PutMappingRequest(QUERQY_INDEX_NAME).source(
-                """
-                        {
-                            "properties": {
-                              "config_v_003": {
-                                "type" : "keyword",
-                                "doc_values": false,
-                                "index": false
-                              }
-                            }
-                        }""", XContentType.JSON
-        );
-
-        indicesClient.putMapping(request, new ActionListener<>() {
-            @Override
-            public void onResponse(final AcknowledgedResponse acknowledgedResponse) {
-                if (!acknowledgedResponse.isAcknowledged()) {
-
-                    LOGGER.info("Adding config_v_003 to mappings not (fully) acknowledged");
-                    listener.onFailure(new IllegalStateException("Adding info_logging to mappings not acknowledged"));
-                } else {
-                    LOGGER.info("Added config_v_003 property to index {}", QUERQY_INDEX_NAME);
-                    mappingsVersionChecked = true;
-                    next.run();
-                }
-            }
-
-            @Override
-            public void onFailure(final Exception e) {
-                listener.onFailure(e);
-            }
-        });
+        querqyIndex.ensureCurrentMappings(() -> querqyIndex.checkNotAliases(
+                Collections.singletonList(request.getRewriterId()),
+                listener.delegateFailureAndWrap((l, ignored) -> saveRewriter(task, request, reusableFactory, l))),
+                listener);
 
     }
 
-    protected CreateIndexRequest buildCreateQuerqyIndexRequest(final IndicesAdminClient indicesClient) {
-        final CreateIndexRequestBuilder createIndexRequestBuilder = indicesClient.prepareCreate(QUERQY_INDEX_NAME);
-        final int numReplicas = settings.getAsInt(SETTINGS_QUERQY_INDEX_NUM_REPLICAS, DEFAULT_QUERQY_INDEX_NUM_REPLICAS);
-        return createIndexRequestBuilder.setMapping(readUtf8Resource("querqy-mapping.json"))
-                .setSettings(Settings.builder().put("number_of_replicas", numReplicas))
-                .request();
-    }
-
     protected void saveRewriter(final Task task, final PutRewriterRequest request,
+                                final ESRewriterFactory validatedFactory,
                                 final ActionListener<PutRewriterResponse> listener) throws IOException {
 
         final IndexRequest indexRequest = buildIndexRequest(task, request);
+        rewriterRegistry.checkFitsInCache(request.getRewriterId(), indexRequest.sourceAsMap());
+        if (validatedFactory != null) {
+            // don't build the rewriter again when it is reloaded on this node
+            rewriterRegistry.putValidatedFactory(request.getRewriterId(), indexRequest, validatedFactory);
+        }
 
         client.index(indexRequest, new ActionListener<>() {
             @Override
             public void onResponse(final DocWriteResponse indexResponse) {
                 LOGGER.info("Saved rewriter {}", request.getRewriterId());
+                // send the saved document along so that the nodes don't have to fetch it from the Querqy index
                 client.execute(NodesReloadRewriterAction.INSTANCE,
-                        new NodesReloadRewriterRequest(request.getRewriterId()),
+                        new NodesReloadRewriterRequest(Collections.singletonList(request.getRewriterId()),
+                                Collections.singletonList(RewriterDocument.of(indexResponse, indexRequest.source())),
+                                REWRITER_NODES),
                         wrap(
                                 (reloadResponse) -> listener
                                         .onResponse(new PutRewriterResponse(indexResponse, reloadResponse)),
@@ -298,10 +119,7 @@ public class TransportPutRewriterAction extends HandledTransportAction<PutRewrit
     }
 
     private IndexRequest buildIndexRequest(final Task parentTask, final PutRewriterRequest request) throws IOException {
-        IndexRequest indexRequest = new IndexRequest(QUERQY_INDEX_NAME)
-                .id(request.getRewriterId())
-                .create(false)
-                .source(RewriterConfigMapping.toLuceneSource(request.getContent()), XContentType.JSON);
+        final IndexRequest indexRequest = QuerqyIndex.buildIndexRequest(request);
 
         indexRequest.setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
         indexRequest.setParentTask(clusterService.localNode().getId(), parentTask.getId());
@@ -310,9 +128,4 @@ public class TransportPutRewriterAction extends HandledTransportAction<PutRewrit
 
     }
 
-    private static String readUtf8Resource(final String name) {
-        final Scanner scanner = new Scanner(TransportPutRewriterAction.class.getClassLoader().getResourceAsStream(name),
-                StandardCharsets.UTF_8).useDelimiter("\\A");
-        return scanner.hasNext() ? scanner.next() : "";
-    }
 }
@@ -0,0 +1,190 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch.rewriterstore;
+
+import static querqy.elasticsearch.rewriterstore.Constants.QUERQY_INDEX_NAME;
+import static querqy.elasticsearch.rewriterstore.Constants.REWRITER_ALIASES_ID;
+import static querqy.elasticsearch.rewriterstore.Constants.REWRITER_NODES;
+import static querqy.elasticsearch.rewriterstore.PutRewriterAliasAction.NAME;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ResourceNotFoundException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.HandledTransportAction;
+import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.client.internal.Client;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.injection.guice.Inject;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+import querqy.elasticsearch.RewriterAliases;
+import querqy.elasticsearch.rewriterstore.NodesReloadRewriterResponse.NodeResponse;
+
+/**
+ * <p>Points a rewriter alias to a rewriter.</p>
+ *
+ * <p>The rewriter is loaded on all nodes before the alias is switched, so that queries that use the alias never have
+ * to compile the rewriter. The alias isn't switched if the rewriter can't be loaded on any of the nodes. Switching the
+ * alias only replaces the aliases that the nodes hold in memory.</p>
+ */
+public class TransportPutRewriterAliasAction extends HandledTransportAction<PutRewriterAliasRequest,
+        PutRewriterAliasResponse> {
+
+    private static final Logger LOGGER = LogManager.getLogger(TransportPutRewriterAliasAction.class);
+
+    private final Client client;
+    private final ClusterService clusterService;
+    private final QuerqyIndex querqyIndex;
+
+    @Inject
+    public TransportPutRewriterAliasAction(
+            final ActionFilters actionFilters,
+            final Client client,
+            final ClusterService clusterService,
+            final Settings settings,
+            final TransportService transportService
+    ) {
+        super(NAME, false, transportService, actionFilters, PutRewriterAliasRequest::new,
+                clusterService.threadPool().executor(ThreadPool.Names.MANAGEMENT));
+        this.clusterService = clusterService;
+        this.client = client;
+        this.querqyIndex = new QuerqyIndex(client, settings);
+    }
+
+    @Override
+    protected void doExecute(final Task task, final PutRewriterAliasRequest request,
+                             final ActionListener<PutRewriterAliasResponse> listener) {
+
+        querqyIndex.ensureCurrentMappings(() -> loadRewriter(task, request, listener), listener);
+
+    }
+
+    protected void loadRewriter(final Task task, final PutRewriterAliasRequest request,
+                                final ActionListener<PutRewriterAliasResponse> listener) {
+
+        final String rewriterId = request.getRewriterId();
+
+        client.prepareMultiGet()
+                .add(QUERQY_INDEX_NAME, REWRITER_ALIASES_ID)
+                .add(QUERQY_INDEX_NAME, rewriterId)
+                .add(QUERQY_INDEX_NAME, request.getAlias())
+                .execute(listener.delegateFailureAndWrap((l, multiGetResponse) -> {
+
+                    final MultiGetItemResponse[] responses = multiGetResponse.getResponses();
+                    for (final MultiGetItemResponse response : responses) {
+                        if (response.isFailed()) {
+                            throw response.getFailure().getFailure();
+                        }
+                    }
+
+                    final GetResponse aliasesResponse = responses[0].getResponse();
+                    final GetResponse rewriterResponse = responses[1].getResponse();
+
+                    final RewriterAliases aliases = RewriterAliases.fromDocument(aliasesResponse);
+                    if (aliases.isAlias(rewriterId)) {
+                        throw new IllegalArgumentException("Cannot point an alias to another alias: " + rewriterId);
+                    }
+                    // queries would resolve the alias and never use the rewriter with the same id
+                    if (responses[2].getResponse().isExists()) {
+                        throw new IllegalArgumentException("Cannot create alias " + request.getAlias()
+                                + ", a rewriter with this id exists");
+                    }
+                    if (!rewriterResponse.isExists()) {
+                        throw new ResourceNotFoundException("Rewriter not found: " + rewriterId);
+                    }
+                    if (!"rewriter".equals(rewriterResponse.getSource().get(RewriterConfigMapping.PROP_TYPE))) {
+                        throw new IllegalArgumentException("Not a rewriter: " + rewriterId);
+                    }
+
+                    final RewriterDocument document = new RewriterDocument(rewriterId, rewriterResponse.getVersion(),
+                            rewriterResponse.getSeqNo(), rewriterResponse.getPrimaryTerm(),
+                            rewriterResponse.getSourceAsBytesRef());
+
+                    client.execute(NodesReloadRewriterAction.INSTANCE,
+                            new NodesReloadRewriterRequest(Collections.singletonList(rewriterId),
+                                    Collections.singletonList(document), REWRITER_NODES).setLoad(true),
+                            l.delegateFailureAndWrap((l2, loadResponse) -> {
+                                checkLoaded(request, loadResponse);
+                                saveAlias(task, request, aliasesResponse, aliases, loadResponse, l2);
+                            }));
+                }));
+    }
+
+    protected void saveAlias(final Task task, final PutRewriterAliasRequest request,
+                             final GetResponse aliasesResponse, final RewriterAliases aliases,
+                             final NodesReloadRewriterResponse loadResponse,
+                             final ActionListener<PutRewriterAliasResponse> listener) {
+
+        final Map<String, String> newAliases = new HashMap<>(aliases.getAliases());
+        newAliases.put(request.getAlias(), request.getRewriterId());
+
+        final Map<String, Object> source = new HashMap<>();
+        source.put(RewriterAliases.PROP_TYPE, RewriterAliases.TYPE);
+        source.put(RewriterAliases.PROP_ALIASES, newAliases);
+
+        final IndexRequest indexRequest = new IndexRequest(QUERQY_INDEX_NAME).id(REWRITER_ALIASES_ID).source(source);
+        // fail instead of losing an alias that was saved concurrently
+        if (aliasesResponse.isExists()) {
+            indexRequest.setIfSeqNo(aliasesResponse.getSeqNo()).setIfPrimaryTerm(aliasesResponse.getPrimaryTerm());
+        } else {
+            indexRequest.create(true);
+        }
+        indexRequest.setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
+        indexRequest.setParentTask(clusterService.localNode().getId(), task.getId());
+
+        client.index(indexRequest, listener.delegateFailureAndWrap((l, indexResponse) -> {
+            LOGGER.info("Pointed rewriter alias {} to {}", request.getAlias(), request.getRewriterId());
+            client.execute(NodesReloadRewriterAction.INSTANCE,
+                    new NodesReloadRewriterRequest(Collections.singletonList(REWRITER_ALIASES_ID),
+                            Collections.singletonList(RewriterDocument.of(indexResponse, indexRequest.source())),
+                            REWRITER_NODES),
+                    l.map(reloadResponse -> new PutRewriterAliasResponse(indexResponse, loadResponse,
+                            reloadResponse)));
+        }));
+    }
+
+    static void checkLoaded(final PutRewriterAliasRequest request, final NodesReloadRewriterResponse loadResponse) {
+        if (loadResponse.hasFailures()) {
+            throw notLoaded(request, loadResponse.failures().get(0));
+        }
+        for (final NodeResponse nodeResponse : loadResponse.getNodes()) {
+            if (nodeResponse.reloadException() != null) {
+                throw notLoaded(request, nodeResponse.reloadException());
+            }
+        }
+    }
+
+    private static ElasticsearchException notLoaded(final PutRewriterAliasRequest request, final Exception cause) {
+        return new ElasticsearchException("Could not load rewriter " + request.getRewriterId() + " on all nodes, alias "
+                + request.getAlias() + " was not changed", cause);
+    }
+
+}
@@ -287,4 +287,11 @@ public class DismaxSearchEngineRequestAdapterTest {
         assertEquals(Optional.of(23.4), adapter.getDoubleRequestParam("querqy.rid2.x"));
         assertEquals(Optional.of(10008.0), adapter.getDoubleRequestParam("querqy.rid2.y"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testThatQueryAnalyzerIsCreatedOncePerRequest() {
+        final DismaxSearchEngineRequestAdapter adapter = new DismaxSearchEngineRequestAdapter(
+                new QuerqyQueryBuilder(), EMPTY_REWRITE_CHAIN, null, null);
+        assertSame(adapter.getQueryAnalyzer(), adapter.getQueryAnalyzer());
+    }
+}
@@ -19,7 +19,12 @@ package querqy.elasticsearch;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static querqy.elasticsearch.rewriterstore.Constants.REWRITER_ALIASES_ID;
 import static querqy.elasticsearch.query.AbstractLuceneQueryTest.*;
 
 import org.apache.lucene.index.Term;
@@ -27,9 +32,16 @@ import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.DisjunctionMaxQuery;
 import org.apache.lucene.search.TermQuery;
+import org.elasticsearch.client.internal.Client;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.query.QueryRewriteContext;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.junit.MockitoJUnitRunner;
+import querqy.elasticsearch.query.QuerqyQueryBuilder;
+import querqy.elasticsearch.query.Rewriter;
+import querqy.elasticsearch.rewriterstore.RewriterDocument;
 import querqy.lucene.LuceneQueries;
 
 import java.util.Arrays;
@@ -113,4 +125,29 @@ public class QuerqyProcessorTest {
         );
 
     }
+
+    @Test
+    public void testThatRewriterLoadingIsOnlyRegisteredWhileRewritersAreMissing() {
+
+        final RewriterRegistry registry = new RewriterRegistry(Settings.EMPTY);
+        registry.reloadRewriter(REWRITER_ALIASES_ID, new RewriterDocument(REWRITER_ALIASES_ID, 1L, 1L, 1L,
+                new BytesArray("{\"type\":\"aliases\",\"aliases\":{}}")).toGetResponse(), mock(Client.class));
+        final RewriterShardContexts rewriterShardContexts = mock(RewriterShardContexts.class);
+        when(rewriterShardContexts.getRewriterRegistry()).thenReturn(registry);
+
+        final QuerqyQueryBuilder queryBuilder = new QuerqyQueryBuilder();
+        queryBuilder.setRewriters(Collections.singletonList(new Rewriter("r1")));
+        final QueryRewriteContext queryRewriteContext = mock(QueryRewriteContext.class);
+
+        final QuerqyProcessor querqyProcessor = new QuerqyProcessor(rewriterShardContexts, null);
+        querqyProcessor.registerRewriterLoading(queryBuilder, queryRewriteContext);
+        verify(queryRewriteContext, times(1)).registerAsyncAction(any());
+
+        // the next rewrite round finds the rewriter loaded and doesn't ask for another round
+        registry.factories.put("r1", new RewriterFactoryAndLogging("r1", new DummyESRewriterFactory("r1"), false,
+                1L, 1L, 1L, "r1", 0L));
+        querqyProcessor.registerRewriterLoading(queryBuilder, queryRewriteContext);
+        verify(queryRewriteContext, times(1)).registerAsyncAction(any());
+
+    }
 }
\ No newline at end of file
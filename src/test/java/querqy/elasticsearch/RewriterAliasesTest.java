@@ -0,0 +1,71 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.junit.Test;
+import querqy.elasticsearch.rewriterstore.RewriterDocument;
+
+public class RewriterAliasesTest {
+
+    @Test
+    public void testFromDocument() {
+
+        final GetResponse response = new RewriterDocument("_rewriter_aliases", 3L, 5L, 1L, new BytesArray(
+                "{\"type\":\"aliases\",\"aliases\":{\"products\":\"products_v2\",\"brands\":\"brands_v1\"}}"))
+                .toGetResponse();
+
+        final RewriterAliases aliases = RewriterAliases.fromDocument(response);
+        assertEquals(3L, aliases.getVersion());
+        assertEquals(2, aliases.getAliases().size());
+        assertTrue(aliases.isAlias("products"));
+        assertFalse(aliases.isAlias("products_v2"));
+        assertEquals("products_v2", aliases.resolve("products"));
+        assertEquals("brands_v1", aliases.resolve("brands"));
+        assertEquals("other", aliases.resolve("other"));
+
+    }
+
+    @Test
+    public void testThatMissingDocumentMeansNoAliases() {
+
+        final GetResponse response = mock(GetResponse.class);
+        when(response.isExists()).thenReturn(false);
+
+        final RewriterAliases aliases = RewriterAliases.fromDocument(response);
+        assertSame(RewriterAliases.EMPTY, aliases);
+        assertEquals("products", aliases.resolve("products"));
+
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testThatRewriterDocumentIsRejected() {
+
+        RewriterAliases.fromDocument(new RewriterDocument("_rewriter_aliases", 1L, 1L, 1L,
+                new BytesArray("{\"type\":\"rewriter\"}")).toGetResponse());
+
+    }
+}
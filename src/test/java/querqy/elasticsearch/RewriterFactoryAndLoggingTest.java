@@ -0,0 +1,118 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.index.shard.IndexShard;
+import org.junit.Test;
+
+public class RewriterFactoryAndLoggingTest {
+
+    @Test
+    public void testThatShardIndependentFactoryIsShared() {
+
+        final DummyESRewriterFactory esRewriterFactory = new DummyESRewriterFactory("r1") {
+            @Override
+            public boolean isShardDependent() {
+                return false;
+            }
+        };
+
+        final RewriterFactoryAndLogging factoryAndLogging = new RewriterFactoryAndLogging("r1", esRewriterFactory,
+                false, 1L);
+
+        assertFalse(factoryAndLogging.isShardDependent());
+        assertSame(factoryAndLogging.getRewriterFactory(mock(IndexShard.class)),
+                factoryAndLogging.getRewriterFactory(mock(IndexShard.class)));
+
+    }
+
+    @Test
+    public void testThatShardDependentFactoryIsCreatedPerShard() {
+
+        final RewriterFactoryAndLogging factoryAndLogging = new RewriterFactoryAndLogging("r1",
+                new DummyESRewriterFactory("r1"), false, 1L);
+
+        assertTrue(factoryAndLogging.isShardDependent());
+        assertNotSame(factoryAndLogging.getRewriterFactory(mock(IndexShard.class)),
+                factoryAndLogging.getRewriterFactory(mock(IndexShard.class)));
+
+    }
+
+    @Test
+    public void testHasSameSource() {
+
+        final GetResponse loaded = getResponse("{\"type\":\"rewriter\"}", 3L, 1L, 4L);
+        final RewriterFactoryAndLogging factoryAndLogging = new RewriterFactoryAndLogging("r1",
+                new DummyESRewriterFactory("r1"), false, 4L, 3L, 1L, RewriterFactoryAndLogging.sourceDigest(loaded),
+                0L);
+
+        assertTrue(factoryAndLogging.hasSameSource(getResponse("{\"other\":1}", 3L, 1L, 4L)));
+        assertTrue(factoryAndLogging.hasSameSource(getResponse("{\"type\":\"rewriter\"}", 5L, 1L, 6L)));
+        assertFalse(factoryAndLogging.hasSameSource(getResponse("{\"type\":\"other\"}", 5L, 1L, 6L)));
+
+        final GetResponse missing = mock(GetResponse.class);
+        when(missing.isExists()).thenReturn(false);
+        assertFalse(factoryAndLogging.hasSameSource(missing));
+
+    }
+
+    @Test
+    public void testWithDocumentVersionSharesCompiledRewriter() {
+
+        final RewriterFactoryAndLogging factoryAndLogging = new RewriterFactoryAndLogging("r1",
+                new DummyESRewriterFactory("r1") {
+                    @Override
+                    public boolean isShardDependent() {
+                        return false;
+                    }
+                }, true, 4L, 3L, 1L, "abc", 100L);
+
+        final RewriterFactoryAndLogging copy = factoryAndLogging.withDocumentVersion(
+                getResponse("{}", 5L, 1L, 6L));
+
+        assertEquals(6L, copy.version);
+        assertEquals(5L, copy.seqNo);
+        assertEquals("abc", copy.sourceDigest);
+        assertTrue(copy.loggingEnabled);
+        assertEquals(100L, copy.ramBytesUsed());
+        assertSame(factoryAndLogging.esRewriterFactory, copy.esRewriterFactory);
+        assertSame(factoryAndLogging.getRewriterFactory(null), copy.getRewriterFactory(null));
+
+    }
+
+    private static GetResponse getResponse(final String source, final long seqNo, final long primaryTerm,
+                                           final long version) {
+        final GetResponse response = mock(GetResponse.class);
+        when(response.isExists()).thenReturn(true);
+        when(response.getSourceAsBytesRef()).thenReturn(new BytesArray(source));
+        when(response.getSeqNo()).thenReturn(seqNo);
+        when(response.getPrimaryTerm()).thenReturn(primaryTerm);
+        when(response.getVersion()).thenReturn(version);
+        return response;
+    }
+}
@@ -0,0 +1,635 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static querqy.elasticsearch.rewriterstore.Constants.QUERQY_INDEX_NAME;
+import static querqy.elasticsearch.rewriterstore.Constants.REWRITER_ALIASES_ID;
+
+import org.elasticsearch.ResourceNotFoundException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.get.GetRequestBuilder;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.client.internal.Client;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.xcontent.XContentType;
+import org.junit.Test;
+import querqy.elasticsearch.rewriterstore.RewriterConfigMapping;
+import querqy.elasticsearch.rewriterstore.RewriterDocument;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RewriterRegistryTest {
+
+    @Test
+    public void testThatLoadedRewritersAreNotReportedAsMissing() {
+
+        final RewriterRegistry registry = new RewriterRegistry(Settings.EMPTY);
+        registry.factories.put("r2", new RewriterFactoryAndLogging("r2", new DummyESRewriterFactory("r2"), false,
+                1L));
+
+        assertThat(registry.getMissingRewriterIds(Arrays.asList("r1", "r2", "r3", "r1")), contains("r1", "r3"));
+        assertThat(registry.getMissingRewriterIds(Arrays.asList("r2")), empty());
+
+    }
+
+    @Test
+    public void testThatRecentlyUsedRewritersAreTracked() {
+
+        final RewriterRegistry registry = new RewriterRegistry(Settings.builder()
+                .put(RewriterRegistry.MAX_RECENTLY_USED.getKey(), 2).build());
+
+        for (final String rewriterId : Arrays.asList("r1", "r2", "r3")) {
+            registry.factories.put(rewriterId, new RewriterFactoryAndLogging(rewriterId,
+                    new DummyESRewriterFactory(rewriterId), false, 1L));
+        }
+
+        final Client client = mock(Client.class);
+        registry.getFactory("r1", client);
+        registry.getFactory("r2", client);
+        registry.getFactory("r1", client);
+        registry.getFactory("r3", client);
+
+        assertThat(registry.getRecentlyUsedRewriterIds(), containsInAnyOrder("r1", "r3"));
+
+        final RewriterStats stats = registry.getStats(2);
+        assertEquals(4L, stats.getHits());
+        assertEquals(0L, stats.getMisses());
+        assertEquals(2, stats.getShardContexts());
+        assertThat(stats.getResidentRewriterIds(), containsInAnyOrder("r1", "r2", "r3"));
+
+        registry.clearRewriter("r3");
+        assertThat(registry.getRecentlyUsedRewriterIds(), hasSize(1));
+
+    }
+
+    @Test
+    public void testThatRecentlyUsedRewritersCanBeDisabled() {
+
+        final RewriterRegistry registry = new RewriterRegistry(Settings.builder()
+                .put(RewriterRegistry.MAX_RECENTLY_USED.getKey(), 0).build());
+        registry.factories.put("r1", new RewriterFactoryAndLogging("r1", new DummyESRewriterFactory("r1"), false,
+                1L));
+
+        registry.getFactory("r1", mock(Client.class));
+        assertThat(registry.getRecentlyUsedRewriterIds(), empty());
+
+    }
+
+    @Test
+    public void testThatMissingRewriterIsNotCached() throws Exception {
+
+        final GetResponse getResponse = mock(GetResponse.class);
+        when(getResponse.getSource()).thenReturn(null);
+
+        final Client client = mock(Client.class, RETURNS_DEEP_STUBS);
+        when(client.prepareGet(any(), any()).execute().get()).thenReturn(getResponse);
+
+        final RewriterRegistry registry = new RewriterRegistry(Settings.EMPTY);
+
+        assertThrows(ResourceNotFoundException.class, () -> registry.getFactory("r1", client));
+        assertNull(registry.getLoadedFactory("r1"));
+
+    }
+
+    @Test
+    public void testThatReloadIgnoresRewritersThatAreNotLoaded() {
+
+        final Client client = mock(Client.class);
+        final RewriterRegistry registry = new RewriterRegistry(Settings.EMPTY);
+
+        assertEquals(RewriterRegistry.ReloadResult.NOT_LOADED, registry.reloadRewriter("r1", client));
+
+        verify(client, never()).prepareGet(any(), any());
+        assertNull(registry.getLoadedFactory("r1"));
+
+    }
+
+    @Test
+    public void testThatLoadedRewriterIsReturnedWithoutFetching() {
+
+        final RewriterFactoryAndLogging factoryAndLogging = new RewriterFactoryAndLogging("r1",
+                new DummyESRewriterFactory("r1"), false, 1L);
+        final RewriterRegistry registry = new RewriterRegistry(Settings.EMPTY);
+        registry.factories.put("r1", factoryAndLogging);
+
+        final Client client = mock(Client.class);
+        assertSame(factoryAndLogging, registry.getFactory("r1", client));
+        verify(client, never()).prepareGet(any(), any());
+
+    }
+
+    @Test
+    public void testThatReloadOfUnchangedSourceKeepsRewriter() throws Exception {
+
+        final RewriterFactoryAndLogging factoryAndLogging = new RewriterFactoryAndLogging("r1",
+                new DummyESRewriterFactory("r1"), false, 4L, 3L, 1L, "abc", 0L);
+        final RewriterRegistry registry = new RewriterRegistry(Settings.EMPTY);
+        registry.factories.put("r1", factoryAndLogging);
+
+        final GetResponse getResponse = mock(GetResponse.class);
+        when(getResponse.isExists()).thenReturn(true);
+        when(getResponse.getSeqNo()).thenReturn(3L);
+        when(getResponse.getPrimaryTerm()).thenReturn(1L);
+        when(getResponse.getVersion()).thenReturn(4L);
+
+        final Client client = mock(Client.class, RETURNS_DEEP_STUBS);
+        when(client.prepareGet(any(), any()).execute().get()).thenReturn(getResponse);
+
+        assertEquals(RewriterRegistry.ReloadResult.UNCHANGED, registry.reloadRewriter("r1", client));
+        assertSame(factoryAndLogging.esRewriterFactory, registry.getLoadedFactory("r1").esRewriterFactory);
+
+    }
+
+    @Test
+    public void testThatReloadUsesPushedDocumentWithoutFetching() {
+
+        final RewriterRegistry registry = new RewriterRegistry(Settings.EMPTY);
+        registry.factories.put("r1", new RewriterFactoryAndLogging("r1", new DummyESRewriterFactory("r1"), false,
+                4L, 3L, 1L, "abc", 0L));
+
+        final Client client = mock(Client.class);
+        final GetResponse pushedDocument = new RewriterDocument("r1", 6L, 5L, 1L, new BytesArray(
+                "{\"type\":\"rewriter\",\"version\":4,\"class\":\"" + DummyESRewriterFactory.class.getName()
+                        + "\"}")).toGetResponse();
+
+        assertEquals(RewriterRegistry.ReloadResult.RELOADED, registry.reloadRewriter("r1", pushedDocument, client));
+        assertEquals(6L, registry.getLoadedFactory("r1").version);
+        verify(client, never()).prepareGet(any(), any());
+
+    }
+
+    @Test
+    public void testThatStaleRewriterKeepsServingWhileItIsRefreshed() throws Exception {
+
+        final RewriterRegistry registry = new RewriterRegistry(Settings.builder()
+                .put(RewriterRegistry.CACHE_REFRESH_AFTER_WRITE.getKey(), "1ms").build());
+        final RewriterFactoryAndLogging stale = new RewriterFactoryAndLogging("r1", new DummyESRewriterFactory("r1"),
+                false, 4L, 3L, 1L, "abc", 0L);
+        registry.factories.put("r1", stale);
+
+        final GetResponse getResponse = new RewriterDocument("r1", 6L, 5L, 1L, new BytesArray(
+                "{\"type\":\"rewriter\",\"version\":4,\"class\":\"" + DummyESRewriterFactory.class.getName()
+                        + "\"}")).toGetResponse();
+        final Client client = mock(Client.class, RETURNS_DEEP_STUBS);
+        when(client.prepareGet(any(), any()).execute().get()).thenReturn(getResponse);
+
+        Thread.sleep(2L);
+
+        // without a thread pool the refresh runs before getFactory returns, but the query still gets the stale version
+        assertSame(stale, registry.getFactory("r1", client));
+        assertEquals(6L, registry.getLoadedFactory("r1").version);
+
+    }
+
+    @Test
+    public void testThatFailedRefreshKeepsRewriterAndIsNotRetriedImmediately() throws Exception {
+
+        final RewriterRegistry registry = new RewriterRegistry(Settings.builder()
+                .put(RewriterRegistry.CACHE_REFRESH_AFTER_WRITE.getKey(), "50ms").build());
+        final RewriterFactoryAndLogging factoryAndLogging = new RewriterFactoryAndLogging("r1",
+                new DummyESRewriterFactory("r1"), false, 4L, 3L, 1L, "abc", 0L);
+        registry.factories.put("r1", factoryAndLogging);
+
+        final AtomicInteger fetches = new AtomicInteger();
+        final Client client = mock(Client.class, RETURNS_DEEP_STUBS);
+        when(client.prepareGet(any(), any()).execute().get()).thenAnswer(invocation -> {
+            fetches.incrementAndGet();
+            throw new ExecutionException(new IllegalStateException("boom"));
+        });
+
+        // not due yet
+        assertSame(factoryAndLogging, registry.getFactory("r1", client));
+        assertEquals(0, fetches.get());
+
+        Thread.sleep(60L);
+
+        assertSame(factoryAndLogging, registry.getFactory("r1", client));
+        assertSame(factoryAndLogging, registry.getFactory("r1", client));
+        assertSame(factoryAndLogging, registry.getLoadedFactory("r1"));
+        assertEquals(1, fetches.get());
+
+    }
+
+    @Test
+    public void testThatReloadLoadsMissingRewriterIfRequested() {
+
+        final RewriterRegistry registry = new RewriterRegistry(Settings.EMPTY);
+
+        final Client client = mock(Client.class);
+        final GetResponse pushedDocument = new RewriterDocument("r1", 2L, 1L, 1L, new BytesArray(
+                "{\"type\":\"rewriter\",\"version\":4,\"class\":\"" + DummyESRewriterFactory.class.getName()
+                        + "\"}")).toGetResponse();
+
+        assertEquals(RewriterRegistry.ReloadResult.NOT_LOADED, registry.reloadRewriter("r1", pushedDocument, client));
+        assertNull(registry.getLoadedFactory("r1"));
+
+        assertEquals(RewriterRegistry.ReloadResult.LOADED, registry.reloadRewriter("r1", pushedDocument, true,
+                client));
+        assertEquals(2L, registry.getLoadedFactory("r1").version);
+        verify(client, never()).prepareGet(any(), any());
+
+    }
+
+    @Test
+    public void testThatValidatedFactoryIsUsedForSameSourceOnly() {
+
+        final BytesArray source = new BytesArray("{\"type\":\"rewriter\",\"version\":4,\"class\":\""
+                + DummyESRewriterFactory.class.getName() + "\"}");
+        final DummyESRewriterFactory validatedFactory = new DummyESRewriterFactory("r1") {
+            @Override
+            public boolean isConfigured() {
+                return true;
+            }
+        };
+
+        final RewriterRegistry registry = new RewriterRegistry(Settings.EMPTY);
+        final Client client = mock(Client.class);
+
+        registry.putValidatedFactory("r1", indexRequest("r1", source), validatedFactory);
+        registry.putValidatedFactory("r2", indexRequest("r2", new BytesArray("{\"type\":\"rewriter\",\"version\":4,"
+                + "\"class\":\"" + DummyESRewriterFactory.class.getName() + "\",\"info_logging\":{}}")),
+                validatedFactory);
+
+        assertEquals(RewriterRegistry.ReloadResult.LOADED, registry.reloadRewriter("r1",
+                new RewriterDocument("r1", 1L, 1L, 1L, source).toGetResponse(), true, client));
+        assertSame(validatedFactory, registry.getLoadedFactory("r1").esRewriterFactory);
+
+        assertEquals(RewriterRegistry.ReloadResult.LOADED, registry.reloadRewriter("r2",
+                new RewriterDocument("r2", 1L, 1L, 1L, source).toGetResponse(), true, client));
+        assertNotSame(validatedFactory, registry.getLoadedFactory("r2").esRewriterFactory);
+
+    }
+
+    @Test
+    public void testThatValidatedFactoryIsChargedToCircuitBreakerUntilItIsUsed() {
+
+        final BytesArray source = new BytesArray("{\"type\":\"rewriter\",\"version\":4,\"class\":\""
+                + DummyESRewriterFactory.class.getName() + "\"}");
+        final RewriterRegistry registry = new RewriterRegistry(Settings.EMPTY);
+        final CircuitBreaker circuitBreaker = mock(CircuitBreaker.class);
+        registry.setCircuitBreaker(circuitBreaker);
+
+        registry.putValidatedFactory("r1", indexRequest("r1", source), configuredFactory("r1", 100L));
+        verify(circuitBreaker).addEstimateBytesAndMaybeBreak(eq(100L), anyString());
+
+        registry.reloadRewriter("r1", new RewriterDocument("r1", 1L, 1L, 1L, source).toGetResponse(), true,
+                mock(Client.class));
+        verify(circuitBreaker).addWithoutBreaking(-100L);
+        // charged again as a loaded rewriter
+        verify(circuitBreaker, times(2)).addEstimateBytesAndMaybeBreak(eq(100L), anyString());
+
+    }
+
+    @Test
+    public void testThatValidatedFactoryIsDroppedIfCircuitBreakerTrips() {
+
+        final BytesArray source = new BytesArray("{\"type\":\"rewriter\",\"version\":4,\"class\":\""
+                + DummyESRewriterFactory.class.getName() + "\"}");
+        final RewriterRegistry registry = new RewriterRegistry(Settings.EMPTY);
+        final CircuitBreaker circuitBreaker = mock(CircuitBreaker.class);
+        doThrow(new CircuitBreakingException("too big", CircuitBreaker.Durability.PERMANENT))
+                .when(circuitBreaker).addEstimateBytesAndMaybeBreak(anyLong(), anyString());
+        registry.setCircuitBreaker(circuitBreaker);
+
+        final DummyESRewriterFactory validatedFactory = configuredFactory("r1", 100L);
+        registry.putValidatedFactory("r1", indexRequest("r1", source), validatedFactory);
+
+        registry.setCircuitBreaker(mock(CircuitBreaker.class));
+        registry.reloadRewriter("r1", new RewriterDocument("r1", 1L, 1L, 1L, source).toGetResponse(), true,
+                mock(Client.class));
+        assertNotSame(validatedFactory, registry.getLoadedFactory("r1").esRewriterFactory);
+
+    }
+
+    @Test
+    public void testThatValidatedFactoryIsNotKeptOnNodeWithoutData() {
+
+        final BytesArray source = new BytesArray("{\"type\":\"rewriter\",\"version\":4,\"class\":\""
+                + DummyESRewriterFactory.class.getName() + "\"}");
+        final RewriterRegistry registry = new RewriterRegistry(Settings.builder()
+                .putList("node.roles", "master").build());
+        assertFalse(registry.keepsValidatedFactories());
+
+        final DummyESRewriterFactory validatedFactory = configuredFactory("r1", 100L);
+        registry.putValidatedFactory("r1", indexRequest("r1", source), validatedFactory);
+
+        registry.reloadRewriter("r1", new RewriterDocument("r1", 1L, 1L, 1L, source).toGetResponse(), true,
+                mock(Client.class));
+        assertNotSame(validatedFactory, registry.getLoadedFactory("r1").esRewriterFactory);
+
+    }
+
+    private static DummyESRewriterFactory configuredFactory(final String rewriterId, final long ramBytesUsed) {
+        return new DummyESRewriterFactory(rewriterId) {
+            @Override
+            public boolean isConfigured() {
+                return true;
+            }
+
+            @Override
+            public long estimateRamBytesUsed(final long configSizeInBytes) {
+                return ramBytesUsed;
+            }
+        };
+    }
+
+    private static IndexRequest indexRequest(final String rewriterId, final BytesArray source) {
+        return new IndexRequest(QUERQY_INDEX_NAME).id(rewriterId).source(source, XContentType.JSON);
+    }
+
+    @Test
+    public void testThatAliasesAreReplacedByNewerVersionOnly() {
+
+        final RewriterRegistry registry = new RewriterRegistry(Settings.EMPTY);
+        assertNull(registry.getAliases());
+
+        final Client client = mock(Client.class);
+        assertEquals(RewriterRegistry.ReloadResult.RELOADED, registry.reloadRewriter(REWRITER_ALIASES_ID,
+                aliasesDocument(2L, "r1_v2"), client));
+        assertEquals("r1_v2", registry.resolveLoadedAlias("r1", client));
+        assertEquals("r2", registry.resolveLoadedAlias("r2", client));
+
+        assertEquals(RewriterRegistry.ReloadResult.UNCHANGED, registry.reloadRewriter(REWRITER_ALIASES_ID,
+                aliasesDocument(2L, "r1_v2"), client));
+
+        assertEquals(RewriterRegistry.ReloadResult.RELOADED, registry.reloadRewriter(REWRITER_ALIASES_ID,
+                aliasesDocument(3L, "r1_v3"), client));
+        assertEquals("r1_v3", registry.resolveLoadedAlias("r1", client));
+        verify(client, never()).prepareGet(any(), any());
+
+        registry.clearRewriter(REWRITER_ALIASES_ID);
+        assertNull(registry.getAliases());
+
+    }
+
+    @Test
+    public void testThatAliasesAreFetchedOnFirstUse() {
+
+        final Client client = mockAliasesClient(aliasesDocument(1L, "r1_v1"));
+
+        final RewriterRegistry registry = new RewriterRegistry(Settings.EMPTY);
+        final PlainActionFuture<List<String>> future = new PlainActionFuture<>();
+        registry.resolveAliases(Arrays.asList("r1", "r2"), client, future);
+
+        assertThat(future.actionGet(), contains("r1_v1", "r2"));
+        assertEquals(1L, registry.getAliases().getVersion());
+
+    }
+
+    @Test
+    public void testThatResolvingAliasesThatAreNotLoadedFails() {
+
+        final Client client = mock(Client.class);
+        final RewriterRegistry registry = new RewriterRegistry(Settings.EMPTY);
+
+        assertThrows(IllegalStateException.class, () -> registry.resolveLoadedAlias("r1", client));
+        verify(client, never()).prepareGet(any(), any());
+
+    }
+
+    @Test
+    public void testThatExpiredAliasesAreFetchedAgain() throws Exception {
+
+        final Client client = mockAliasesClient(aliasesDocument(2L, "r1_v2"));
+        final RewriterRegistry registry = new RewriterRegistry(Settings.builder()
+                .put(RewriterRegistry.CACHE_EXPIRE_AFTER_WRITE.getKey(), "1ms").build());
+        registry.reloadRewriter(REWRITER_ALIASES_ID, aliasesDocument(1L, "r1_v1"), client);
+
+        Thread.sleep(10);
+        assertNull(registry.getAliases());
+        // queries that already passed the rewrite phase keep using the expired aliases
+        assertEquals("r1_v1", registry.resolveLoadedAlias("r1", client));
+
+        final PlainActionFuture<List<String>> future = new PlainActionFuture<>();
+        registry.resolveAliases(Collections.singletonList("r1"), client, future);
+        assertThat(future.actionGet(), contains("r1_v2"));
+
+    }
+
+    @Test
+    public void testThatAliasesAreRefreshedInBackground() throws Exception {
+
+        final Client client = mockAliasesClient(aliasesDocument(2L, "r1_v2"));
+        final RewriterRegistry registry = new RewriterRegistry(Settings.builder()
+                .put(RewriterRegistry.CACHE_REFRESH_AFTER_WRITE.getKey(), "1ms").build());
+        registry.reloadRewriter(REWRITER_ALIASES_ID, aliasesDocument(1L, "r1_v1"), client);
+
+        Thread.sleep(10);
+        // the refresh doesn't hold up the query, which uses the loaded aliases
+        assertEquals("r1_v1", registry.resolveLoadedAlias("r1", client));
+        assertEquals("r1_v2", registry.resolveLoadedAlias("r1", client));
+        assertEquals(2L, registry.getAliases().getVersion());
+
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Client mockAliasesClient(final GetResponse aliasesDocument) {
+        final Client client = mock(Client.class);
+        final GetRequestBuilder getRequestBuilder = mock(GetRequestBuilder.class);
+        when(client.prepareGet(any(), any())).thenReturn(getRequestBuilder);
+        doAnswer(invocation -> {
+            ((ActionListener<GetResponse>) invocation.getArgument(0)).onResponse(aliasesDocument);
+            return null;
+        }).when(getRequestBuilder).execute(any());
+        return client;
+    }
+
+    private static GetResponse aliasesDocument(final long version, final String target) {
+        return new RewriterDocument(REWRITER_ALIASES_ID, version, version, 1L, new BytesArray(
+                "{\"type\":\"aliases\",\"aliases\":{\"r1\":\"" + target + "\"}}")).toGetResponse();
+    }
+
+    @Test
+    public void testThatReloadFetchesDocumentIfPushedDocumentIsOutdated() throws Exception {
+
+        final RewriterFactoryAndLogging factoryAndLogging = new RewriterFactoryAndLogging("r1",
+                new DummyESRewriterFactory("r1"), false, 4L, 3L, 1L, "abc", 0L);
+        final RewriterRegistry registry = new RewriterRegistry(Settings.EMPTY);
+        registry.factories.put("r1", factoryAndLogging);
+
+        final GetResponse getResponse = mock(GetResponse.class);
+        when(getResponse.isExists()).thenReturn(true);
+        when(getResponse.getSeqNo()).thenReturn(3L);
+        when(getResponse.getPrimaryTerm()).thenReturn(1L);
+        when(getResponse.getVersion()).thenReturn(4L);
+
+        final Client client = mock(Client.class, RETURNS_DEEP_STUBS);
+        when(client.prepareGet(any(), any()).execute().get()).thenReturn(getResponse);
+
+        final GetResponse pushedDocument = new RewriterDocument("r1", 2L, 1L, 1L, new BytesArray(
+                "{\"type\":\"rewriter\",\"version\":4,\"class\":\"" + DummyESRewriterFactory.class.getName()
+                        + "\"}")).toGetResponse();
+
+        assertEquals(RewriterRegistry.ReloadResult.UNCHANGED, registry.reloadRewriter("r1", pushedDocument, client));
+        assertSame(factoryAndLogging.esRewriterFactory, registry.getLoadedFactory("r1").esRewriterFactory);
+        assertEquals(4L, registry.getLoadedFactory("r1").version);
+
+    }
+
+    @Test
+    public void testThatReloadExceedingTheCircuitBreakerKeepsOldRewriter() throws Exception {
+
+        final RewriterFactoryAndLogging factoryAndLogging = new RewriterFactoryAndLogging("r1",
+                new DummyESRewriterFactory("r1"), false, 4L, 3L, 1L, "abc", 0L);
+        final RewriterRegistry registry = new RewriterRegistry(Settings.EMPTY);
+        registry.factories.put("r1", factoryAndLogging);
+
+        final CircuitBreaker circuitBreaker = mock(CircuitBreaker.class);
+        doThrow(new CircuitBreakingException("too big", CircuitBreaker.Durability.PERMANENT))
+                .when(circuitBreaker).addEstimateBytesAndMaybeBreak(anyLong(), anyString());
+        registry.setCircuitBreaker(circuitBreaker);
+
+        final Map<String, Object> source = new HashMap<>();
+        source.put("type", "rewriter");
+        source.put("version", 3);
+        source.put("class", DummyESRewriterFactory.class.getName());
+
+        final GetResponse getResponse = mock(GetResponse.class);
+        when(getResponse.isExists()).thenReturn(true);
+        when(getResponse.getSource()).thenReturn(source);
+        when(getResponse.getSourceAsBytesRef()).thenReturn(new BytesArray("{\"changed\":true}"));
+        when(getResponse.getSeqNo()).thenReturn(5L);
+        when(getResponse.getPrimaryTerm()).thenReturn(1L);
+        when(getResponse.getVersion()).thenReturn(6L);
+
+        final Client client = mock(Client.class, RETURNS_DEEP_STUBS);
+        when(client.prepareGet(any(), any()).execute().get()).thenReturn(getResponse);
+
+        assertThrows(CircuitBreakingException.class, () -> registry.reloadRewriter("r1", client));
+        assertSame(factoryAndLogging, registry.getLoadedFactory("r1"));
+
+    }
+
+    @Test
+    public void testThatCacheIsBoundedByEstimatedSizeAndPinnedRewritersAreKept() {
+
+        final RewriterRegistry registry = new RewriterRegistry(Settings.builder()
+                .put(RewriterRegistry.CACHE_MAX_BYTES.getKey(), "100b")
+                .putList(RewriterRegistry.CACHE_PINNED.getKey(), "pinned").build());
+
+        final RewriterFactoryAndLogging r1 = new RewriterFactoryAndLogging("r1", new DummyESRewriterFactory("r1"),
+                false, 1L, 1L, 1L, "r1", 60L);
+        final RewriterFactoryAndLogging r2 = new RewriterFactoryAndLogging("r2", new DummyESRewriterFactory("r2"),
+                false, 1L, 1L, 1L, "r2", 60L);
+        final RewriterFactoryAndLogging pinned = new RewriterFactoryAndLogging("pinned",
+                new DummyESRewriterFactory("pinned"), false, 1L, 1L, 1L, "pinned", 1000L);
+
+        registry.factories.put("r1", r1);
+        registry.factories.put("r2", r2);
+        registry.pinnedFactories.put("pinned", pinned);
+
+        assertNull(registry.getLoadedFactory("r1"));
+        assertSame(r2, registry.getLoadedFactory("r2"));
+        assertSame(pinned, registry.getLoadedFactory("pinned"));
+        assertTrue(registry.isPinned("pinned"));
+
+    }
+
+    @Test
+    public void testThatRewriterLargerThanCacheIsRejected() throws Exception {
+
+        final RewriterRegistry registry = new RewriterRegistry(Settings.builder()
+                .put(RewriterRegistry.CACHE_MAX_BYTES.getKey(), "100b").build());
+        final CircuitBreaker circuitBreaker = mock(CircuitBreaker.class);
+        registry.setCircuitBreaker(circuitBreaker);
+
+        final Map<String, Object> source = largeRewriterSource();
+        final GetResponse getResponse = mock(GetResponse.class);
+        when(getResponse.isExists()).thenReturn(true);
+        when(getResponse.getSource()).thenReturn(source);
+        when(getResponse.getSourceAsBytesRef()).thenReturn(new BytesArray("{}"));
+        when(getResponse.getVersion()).thenReturn(1L);
+
+        final IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> registry.reloadRewriter("large", getResponse, true, mock(Client.class)));
+        assertThat(e.getMessage(), containsString(RewriterRegistry.CACHE_MAX_BYTES.getKey()));
+        assertNull(registry.getLoadedFactory("large"));
+        verify(circuitBreaker, never()).addEstimateBytesAndMaybeBreak(anyLong(), anyString());
+
+        assertThrows(IllegalArgumentException.class, () -> registry.checkFitsInCache("large", source));
+
+    }
+
+    @Test
+    public void testThatPinnedRewriterLargerThanCacheIsLoaded() throws Exception {
+
+        final RewriterRegistry registry = new RewriterRegistry(Settings.builder()
+                .put(RewriterRegistry.CACHE_MAX_BYTES.getKey(), "100b")
+                .putList(RewriterRegistry.CACHE_PINNED.getKey(), "large").build());
+
+        final Map<String, Object> source = largeRewriterSource();
+        final GetResponse getResponse = mock(GetResponse.class);
+        when(getResponse.isExists()).thenReturn(true);
+        when(getResponse.getSource()).thenReturn(source);
+        when(getResponse.getSourceAsBytesRef()).thenReturn(new BytesArray("{}"));
+        when(getResponse.getVersion()).thenReturn(1L);
+
+        registry.checkFitsInCache("large", source);
+        assertEquals(RewriterRegistry.ReloadResult.LOADED,
+                registry.reloadRewriter("large", getResponse, true, mock(Client.class)));
+        assertSame(registry.pinnedFactories.get("large"), registry.getLoadedFactory("large"));
+
+    }
+
+    private static Map<String, Object> largeRewriterSource() throws IOException {
+        final Map<String, Object> config = new HashMap<>();
+        config.put("rules", "a".repeat(200));
+        final Map<String, Object> content = new HashMap<>();
+        content.put("class", DummyESRewriterFactory.class.getName());
+        content.put("config", config);
+        return RewriterConfigMapping.toLuceneSource(content);
+    }
+
+}
@@ -17,6 +17,7 @@
  */
 package querqy.elasticsearch;
 
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.admin.cluster.node.info.NodeInfo;
 import org.elasticsearch.action.admin.cluster.node.info.NodesInfoResponse;
 import org.elasticsearch.action.admin.cluster.node.info.PluginsAndModules;
@@ -25,10 +26,17 @@ import org.elasticsearch.action.support.WriteRequest;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.test.ESIntegTestCase;
+import querqy.elasticsearch.rewriterstore.BulkPutRewriterAction;
+import querqy.elasticsearch.rewriterstore.BulkPutRewriterRequest;
 import querqy.elasticsearch.rewriterstore.PutRewriterAction;
+import querqy.elasticsearch.rewriterstore.PutRewriterAliasAction;
+import querqy.elasticsearch.rewriterstore.PutRewriterAliasRequest;
+import querqy.elasticsearch.rewriterstore.PutRewriterAliasResponse;
 import querqy.elasticsearch.rewriterstore.PutRewriterRequest;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -132,6 +140,84 @@ public class RewriterStoreIntegrationTest extends ESIntegTestCase {
 
     }
 
+    public void testThatAliasIsSwitchedAfterRewriterHasBeenLoaded() {
+
+        final Map<String, Object> payload = new HashMap<>();
+        payload.put("class", DummyESRewriterFactory.class.getName());
+        payload.put("config", new HashMap<>());
+
+        client().execute(PutRewriterAction.INSTANCE, new PutRewriterRequest("products_v1", payload)).actionGet();
+        client().execute(PutRewriterAction.INSTANCE, new PutRewriterRequest("products_v2", payload)).actionGet();
+
+        client().execute(PutRewriterAliasAction.INSTANCE, new PutRewriterAliasRequest("products", "products_v1"))
+                .actionGet();
+        for (final RewriterRegistry registry : internalCluster().getDataNodeInstances(RewriterRegistry.class)) {
+            assertNotNull(registry.getLoadedFactory("products_v1"));
+            assertEquals("products_v1", registry.getAliases().resolve("products"));
+        }
+
+        final PutRewriterAliasResponse response = client().execute(PutRewriterAliasAction.INSTANCE,
+                new PutRewriterAliasRequest("products", "products_v2")).actionGet();
+        assertFalse(response.getLoadResponse().hasFailures());
+        for (final RewriterRegistry registry : internalCluster().getDataNodeInstances(RewriterRegistry.class)) {
+            assertNotNull(registry.getLoadedFactory("products_v2"));
+            assertEquals("products_v2", registry.getAliases().resolve("products"));
+        }
+
+        // aliases can't point to other aliases
+        final Exception e = expectThrows(Exception.class, () -> client().execute(PutRewriterAliasAction.INSTANCE,
+                new PutRewriterAliasRequest("other", "products")).actionGet());
+        assertNotNull(ExceptionsHelper.unwrap(e, IllegalArgumentException.class));
+
+    }
+
+    public void testThatAliasWithIdOfExistingRewriterIsRejected() {
+
+        final Map<String, Object> payload = new HashMap<>();
+        payload.put("class", DummyESRewriterFactory.class.getName());
+        payload.put("config", new HashMap<>());
+
+        client().execute(PutRewriterAction.INSTANCE, new PutRewriterRequest("brands_v1", payload)).actionGet();
+        client().execute(PutRewriterAction.INSTANCE, new PutRewriterRequest("brands", payload)).actionGet();
+
+        final Exception e = expectThrows(Exception.class, () -> client().execute(PutRewriterAliasAction.INSTANCE,
+                new PutRewriterAliasRequest("brands", "brands_v1")).actionGet());
+        assertNotNull(ExceptionsHelper.unwrap(e, IllegalArgumentException.class));
+        assertEquals(RestStatus.BAD_REQUEST, ExceptionsHelper.status(e));
+
+        for (final RewriterRegistry registry : internalCluster().getDataNodeInstances(RewriterRegistry.class)) {
+            final RewriterAliases aliases = registry.getAliases();
+            assertTrue(aliases == null || !aliases.isAlias("brands"));
+        }
+
+    }
+
+    public void testThatRewriterWithIdOfExistingAliasIsRejected() {
+
+        final Map<String, Object> payload = new HashMap<>();
+        payload.put("class", DummyESRewriterFactory.class.getName());
+        payload.put("config", new HashMap<>());
+
+        client().execute(PutRewriterAction.INSTANCE, new PutRewriterRequest("colors_v1", payload)).actionGet();
+        client().execute(PutRewriterAliasAction.INSTANCE, new PutRewriterAliasRequest("colors", "colors_v1"))
+                .actionGet();
+
+        final Exception e = expectThrows(Exception.class, () -> client().execute(PutRewriterAction.INSTANCE,
+                new PutRewriterRequest("colors", payload)).actionGet());
+        assertNotNull(ExceptionsHelper.unwrap(e, IllegalArgumentException.class));
+        assertEquals(RestStatus.BAD_REQUEST, ExceptionsHelper.status(e));
+
+        final Exception bulkException = expectThrows(Exception.class, () -> client().execute(
+                BulkPutRewriterAction.INSTANCE, new BulkPutRewriterRequest(Arrays.asList(
+                        new PutRewriterRequest("colors_v2", payload), new PutRewriterRequest("colors", payload))))
+                .actionGet());
+        assertNotNull(ExceptionsHelper.unwrap(bulkException, IllegalArgumentException.class));
+
+        assertFalse(client().prepareGet(QUERQY_INDEX_NAME, "colors").get().isExists());
+        assertFalse(client().prepareGet(QUERQY_INDEX_NAME, "colors_v2").get().isExists());
+
+    }
+
     public void index() {
         final String indexName = "idx";
         client().admin().indices().prepareCreate(indexName).get();
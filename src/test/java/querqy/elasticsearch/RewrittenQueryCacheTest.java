@@ -0,0 +1,236 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.shard.IndexShard;
+import org.junit.Test;
+import querqy.elasticsearch.query.MatchingQuery;
+import querqy.elasticsearch.query.QuerqyQueryBuilder;
+import querqy.elasticsearch.query.Rewriter;
+import querqy.parser.QuerqyParser;
+import querqy.parser.WhiteSpaceQuerqyParser;
+import querqy.rewrite.RewriteChain;
+import querqy.rewrite.RewriteChainOutput;
+import querqy.rewrite.RewriterFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class RewrittenQueryCacheTest {
+
+    private static final Settings ENABLED = Settings.builder()
+            .put(RewrittenQueryCache.MAX_BYTES.getKey(), "1mb").build();
+
+    @Test
+    public void testThatCacheIsDisabledByDefault() {
+        final RewrittenQueryCache cache = new RewrittenQueryCache(Settings.EMPTY);
+        assertFalse(cache.isEnabled());
+        assertEquals(CacheStats.EMPTY, cache.getStats());
+    }
+
+    @Test
+    public void testNormalizeQueryString() {
+        assertEquals("a b c", RewrittenQueryCache.normalizeQueryString("  a \t b   c "));
+        assertEquals("A b", RewrittenQueryCache.normalizeQueryString("A b"));
+    }
+
+    @Test
+    public void testThatWhitespaceIsNormalizedForDefaultParserOnly() {
+
+        final RewriterFactoryAndLogging factoryAndLogging = new RewriterFactoryAndLogging("r1",
+                new DummyESRewriterFactory("r1"), false, 1L);
+        final RewriteChainAndLogging chainAndLogging = new RewriteChainAndLogging(
+                new RewriteChain(Collections.emptyList()), Collections.emptySet(),
+                Collections.singletonList(factoryAndLogging));
+
+        final QuerqyQueryBuilder queryBuilder1 = new QuerqyQueryBuilder();
+        queryBuilder1.setMatchingQuery(new MatchingQuery("a b"));
+        queryBuilder1.setRewriters(Collections.singletonList(new Rewriter("r1")));
+        final QuerqyQueryBuilder queryBuilder2 = new QuerqyQueryBuilder();
+        queryBuilder2.setMatchingQuery(new MatchingQuery(" a  b"));
+        queryBuilder2.setRewriters(Collections.singletonList(new Rewriter("r1")));
+
+        assertEquals(RewrittenQueryCache.createKey(chainAndLogging, queryBuilder1, Optional.empty()),
+                RewrittenQueryCache.createKey(chainAndLogging, queryBuilder2, Optional.empty()));
+        assertEquals(RewrittenQueryCache.createKey(chainAndLogging, queryBuilder1,
+                        Optional.of(new WhiteSpaceQuerqyParser())),
+                RewrittenQueryCache.createKey(chainAndLogging, queryBuilder2,
+                        Optional.of(new WhiteSpaceQuerqyParser())));
+
+        // another parser might treat whitespace as significant
+        final Optional<QuerqyParser> otherParser = Optional.of(mock(QuerqyParser.class));
+        assertFalse(RewrittenQueryCache.isDefaultParser(otherParser));
+        assertNotEquals(RewrittenQueryCache.createKey(chainAndLogging, queryBuilder1, otherParser),
+                RewrittenQueryCache.createKey(chainAndLogging, queryBuilder2, otherParser));
+
+    }
+
+    @Test
+    public void testThatParamsAreComparedRegardlessOfOrder() {
+
+        final Map<String, Object> params1 = new LinkedHashMap<>();
+        params1.put("a", 1);
+        params1.put("b", Collections.singletonMap("c", "d"));
+        final Map<String, Object> params2 = new LinkedHashMap<>();
+        params2.put("b", Collections.singletonMap("c", "d"));
+        params2.put("a", 1);
+
+        assertEquals(key("q", "r1", 1L, params1), key("q", "r1", 1L, params2));
+        assertEquals(key("q", "r1", 1L, params1).hashCode(), key("q", "r1", 1L, params2).hashCode());
+        assertNotEquals(key("q", "r1", 1L, params1), key("q", "r1", 1L, null));
+        assertNotEquals(key("q", "r1", 1L, null), key("q", "r1", 2L, null));
+        assertNotEquals(key("q", "r1", 1L, null), key("q2", "r1", 1L, null));
+
+    }
+
+    @Test
+    public void testThatOutputIsCachedAndCounted() {
+
+        final RewrittenQueryCache cache = new RewrittenQueryCache(ENABLED);
+        final RewriteChainOutput output = mock(RewriteChainOutput.class);
+
+        assertNull(cache.get(key("q", "r1", 1L, null)));
+        cache.put(key("q", "r1", 1L, null), output);
+        assertSame(output, cache.get(key("q", "r1", 1L, null)));
+
+        final CacheStats stats = cache.getStats();
+        assertEquals(1L, stats.getHits());
+        assertEquals(1L, stats.getMisses());
+        assertEquals(0.5, stats.getHitRate(), 0.0001);
+        assertEquals(1L, stats.getEntries());
+        assertTrue(stats.getEstimatedSizeInBytes() > 0L);
+
+    }
+
+    @Test
+    public void testThatEntriesOfRewriterAreInvalidated() {
+
+        final RewrittenQueryCache cache = new RewrittenQueryCache(ENABLED);
+        cache.put(key("q", "r1", 1L, null), mock(RewriteChainOutput.class));
+        cache.put(key("q", "r2", 1L, null), mock(RewriteChainOutput.class));
+
+        cache.invalidateRewriter("r1");
+
+        assertNull(cache.get(key("q", "r1", 1L, null)));
+        assertEquals(1L, cache.getStats().getEntries());
+
+    }
+
+    @Test
+    public void testThatClearingRewriterInRegistryInvalidatesEntries() {
+
+        final RewriterRegistry registry = new RewriterRegistry(ENABLED);
+        final RewrittenQueryCache cache = registry.getRewrittenQueryCache();
+        cache.put(key("q", "r1", 1L, null), mock(RewriteChainOutput.class));
+
+        registry.clearRewriter("r1");
+
+        assertEquals(0L, registry.getStats(0).getQueryCacheStats().getEntries());
+
+    }
+
+    @Test
+    public void testThatChainsWithShardDependentRewriterAreNotCached() {
+
+        final RewrittenQueryCache cache = new RewrittenQueryCache(ENABLED);
+
+        // like the word break rewriter, this rewriter is created per shard from the shard's own dictionary
+        final Map<IndexShard, String> dictionaries = new HashMap<>();
+        final IndexShard shard1 = mock(IndexShard.class);
+        final IndexShard shard2 = mock(IndexShard.class);
+        dictionaries.put(shard1, "wordbreak");
+        dictionaries.put(shard2, "word break");
+
+        final Map<RewriterFactory, String> dictionaryOfFactory = new HashMap<>();
+        final RewriterFactoryAndLogging factoryAndLogging = new RewriterFactoryAndLogging("wb",
+                new DummyESRewriterFactory("wb") {
+                    @Override
+                    public RewriterFactory createRewriterFactory(final IndexShard indexShard) {
+                        final RewriterFactory rewriterFactory = super.createRewriterFactory(indexShard);
+                        dictionaryOfFactory.put(rewriterFactory, dictionaries.get(indexShard));
+                        return rewriterFactory;
+                    }
+                }, false, 1L);
+        assertTrue(factoryAndLogging.isShardDependent());
+
+        final QuerqyQueryBuilder queryBuilder = new QuerqyQueryBuilder();
+        queryBuilder.setMatchingQuery(new MatchingQuery("wordbreak"));
+        queryBuilder.setRewriters(Collections.singletonList(new Rewriter("wb")));
+
+        for (final IndexShard shard : Arrays.asList(shard1, shard2)) {
+            final RewriterFactory shardFactory = factoryAndLogging.getRewriterFactory(shard);
+            assertEquals(dictionaries.get(shard), dictionaryOfFactory.get(shardFactory));
+
+            final RewriteChain shardChain = new RewriteChain(Collections.singletonList(shardFactory));
+            final RewriteChainAndLogging chainAndLogging = new RewriteChainAndLogging(shardChain,
+                    Collections.emptySet(), Collections.singletonList(factoryAndLogging));
+            assertFalse(RewrittenQueryCache.isCacheable(chainAndLogging));
+            // each shard rewrites with its own chain and never sees the output of the other shard
+            assertSame(shardChain, cache.cachingRewriteChain(chainAndLogging, queryBuilder));
+        }
+
+        assertEquals(0L, cache.getStats().getMisses());
+        assertEquals(0L, cache.getStats().getEntries());
+
+    }
+
+    @Test
+    public void testThatChainsWithShardIndependentRewritersAreCached() {
+
+        final RewrittenQueryCache cache = new RewrittenQueryCache(ENABLED);
+        final RewriterFactoryAndLogging factoryAndLogging = new RewriterFactoryAndLogging("r1",
+                new DummyESRewriterFactory("r1") {
+                    @Override
+                    public boolean isShardDependent() {
+                        return false;
+                    }
+                }, false, 1L);
+        final RewriteChain chain = new RewriteChain(
+                Collections.singletonList(factoryAndLogging.getRewriterFactory(null)));
+
+        final QuerqyQueryBuilder queryBuilder = new QuerqyQueryBuilder();
+        queryBuilder.setMatchingQuery(new MatchingQuery("a b"));
+        queryBuilder.setRewriters(Collections.singletonList(new Rewriter("r1")));
+
+        assertNotSame(chain, cache.cachingRewriteChain(new RewriteChainAndLogging(chain, Collections.emptySet(),
+                Collections.singletonList(factoryAndLogging)), queryBuilder));
+
+    }
+
+    private static RewrittenQueryCache.Key key(final String queryString, final String rewriterId, final long version,
+                                               final Map<String, Object> params) {
+        final List<Map<String, Object>> paramsList = Collections.singletonList(params);
+        return new RewrittenQueryCache.Key(queryString, Arrays.asList(rewriterId), Arrays.asList(rewriterId),
+                Arrays.asList(version), paramsList);
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.MappingLookup;
+import org.elasticsearch.index.query.SearchExecutionContext;
+import org.junit.Test;
+import querqy.elasticsearch.query.MatchingQuery;
+import querqy.elasticsearch.query.QuerqyQueryBuilder;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class ShardQueryCacheTest {
+
+    private static final Settings ENABLED = Settings.builder()
+            .put(ShardQueryCache.MAX_BYTES_PER_SHARD.getKey(), "1mb").build();
+
+    private final Object mappingCacheKey = new Object();
+    private final Object readerCacheKey = new Object();
+
+    @Test
+    public void testThatCacheIsDisabledByDefault() {
+        final ShardQueryCache cache = new ShardQueryCache(Settings.EMPTY);
+        assertFalse(cache.isEnabled());
+        assertNull(cache.createKey(queryBuilder("a"), null, null));
+    }
+
+    @Test
+    public void testKeyEquality() {
+        assertEquals(key("a", "r1", 1L, mappingCacheKey), key("a", "r1", 1L, mappingCacheKey));
+        assertEquals(key("a", "r1", 1L, mappingCacheKey).hashCode(), key("a", "r1", 1L, mappingCacheKey).hashCode());
+        assertNotEquals(key("a", "r1", 1L, mappingCacheKey), key("b", "r1", 1L, mappingCacheKey));
+        assertNotEquals(key("a", "r1", 1L, mappingCacheKey), key("a", "r1", 2L, mappingCacheKey));
+        assertNotEquals(key("a", "r1", 1L, mappingCacheKey), key("a", "r1", 1L, new Object()));
+    }
+
+    @Test
+    public void testThatQueriesOfRewriterAreInvalidated() {
+
+        final ShardQueryCache cache = new ShardQueryCache(ENABLED);
+        final Query query = new TermQuery(new Term("f1", "a"));
+        cache.put(key("a", "r1", 1L, mappingCacheKey), query);
+        cache.put(key("a", "r2", 1L, mappingCacheKey), new TermQuery(new Term("f1", "b")));
+
+        assertSame(query, cache.get(key("a", "r1", 1L, mappingCacheKey)));
+
+        cache.invalidateRewriter("r1");
+        assertNull(cache.get(key("a", "r1", 1L, mappingCacheKey)));
+        assertEquals(1, cache.count());
+
+        cache.invalidateAll();
+        assertEquals(0, cache.count());
+
+    }
+
+    @Test
+    public void testThatQueriesOfClosedReaderAreInvalidated() throws Exception {
+
+        try (Directory directory = new ByteBuffersDirectory()) {
+            new IndexWriter(directory, new IndexWriterConfig()).close();
+
+            final DirectoryReader reader = DirectoryReader.open(directory);
+            final SearchExecutionContext context = mock(SearchExecutionContext.class);
+            when(context.getIndexReader()).thenReturn(reader);
+
+            final ShardQueryCache cache = new ShardQueryCache(ENABLED);
+            final ShardQueryCache.Key readerKey = cache.createKey(queryBuilder("a"), null, context);
+            cache.put(readerKey, new TermQuery(new Term("f1", "a")));
+            cache.put(key("a", "r1", 1L, mappingCacheKey), new TermQuery(new Term("f1", "a")));
+            assertEquals(2, cache.count());
+
+            reader.close();
+
+            assertNull(cache.get(readerKey));
+            assertEquals(1, cache.count());
+        }
+
+    }
+
+    @Test
+    public void testThatQueriesOfRequestsWithRuntimeFieldsAreNotCached() throws Exception {
+
+        try (Directory directory = new ByteBuffersDirectory()) {
+            new IndexWriter(directory, new IndexWriterConfig()).close();
+
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                final MappingLookup mappingLookup = mock(MappingLookup.class);
+                final MappedFieldType mappedField = mock(MappedFieldType.class);
+                when(mappingLookup.getFieldType("f1")).thenReturn(mappedField);
+
+                final ShardQueryCache cache = new ShardQueryCache(ENABLED);
+
+                // both requests define runtime field f2, but with different scripts
+                final SearchExecutionContext context1 = context(reader, mappingLookup, "f1", mappedField,
+                        "f2", mock(MappedFieldType.class));
+                final SearchExecutionContext context2 = context(reader, mappingLookup, "f1", mappedField,
+                        "f2", mock(MappedFieldType.class));
+                assertNull(cache.createKey(queryBuilder("a"), null, context1));
+                assertNull(cache.createKey(queryBuilder("a"), null, context2));
+
+                // a runtime field that shadows a mapped field
+                final SearchExecutionContext shadowing = context(reader, mappingLookup, "f1",
+                        mock(MappedFieldType.class));
+                assertNull(cache.createKey(queryBuilder("a"), null, shadowing));
+
+                final SearchExecutionContext mappedOnly = context(reader, mappingLookup, "f1", mappedField);
+                assertNotNull(cache.createKey(queryBuilder("a"), null, mappedOnly));
+            }
+        }
+
+    }
+
+    @Test
+    public void testThatNodeLimitIsSharedByShards() {
+
+        final Query query = new TermQuery(new Term("f1", "a"));
+        final long queryBytes = RamUsageEstimator.QUERY_DEFAULT_RAM_BYTES_USED
+                + ShardQueryCache.estimateRamBytesUsed(query);
+        final ShardQueryCache.NodeLimit nodeLimit = new ShardQueryCache.NodeLimit(queryBytes);
+        final ShardQueryCache shard1 = new ShardQueryCache(ENABLED, nodeLimit);
+        final ShardQueryCache shard2 = new ShardQueryCache(ENABLED, nodeLimit);
+
+        shard1.put(key("a", "r1", 1L, mappingCacheKey), query);
+        assertEquals(queryBytes, nodeLimit.getUsedBytes());
+
+        // the node limit is used up by the other shard
+        shard2.put(key("a", "r1", 1L, mappingCacheKey), query);
+        assertEquals(0, shard2.count());
+
+        shard1.invalidateAll();
+        assertEquals(0L, nodeLimit.getUsedBytes());
+
+        shard2.put(key("a", "r1", 1L, mappingCacheKey), query);
+        assertEquals(1, shard2.count());
+        assertEquals(queryBytes, nodeLimit.getUsedBytes());
+
+    }
+
+    @Test
+    public void testThatEstimateGrowsWithClauses() {
+
+        final Query single = new TermQuery(new Term("f1", "a"));
+        final Query bq = new BooleanQuery.Builder()
+                .add(single, BooleanClause.Occur.SHOULD)
+                .add(new TermQuery(new Term("f2", "b")), BooleanClause.Occur.SHOULD)
+                .build();
+
+        assertTrue(ShardQueryCache.estimateRamBytesUsed(single) > 0L);
+        assertTrue(ShardQueryCache.estimateRamBytesUsed(bq) > ShardQueryCache.estimateRamBytesUsed(single));
+
+    }
+
+    private ShardQueryCache.Key key(final String queryString, final String rewriterId, final long version,
+                                    final Object mappingCacheKey) {
+        return new ShardQueryCache.Key(queryBuilder(queryString), Collections.singletonList(rewriterId),
+                Arrays.asList(version), mappingCacheKey, readerCacheKey);
+    }
+
+    private static SearchExecutionContext context(final DirectoryReader reader, final MappingLookup mappingLookup,
+                                                  final Object... namesAndFieldTypes) {
+        final List<Map.Entry<String, MappedFieldType>> fields = new ArrayList<>();
+        for (int i = 0; i < namesAndFieldTypes.length; i += 2) {
+            fields.add(new AbstractMap.SimpleEntry<>((String) namesAndFieldTypes[i],
+                    (MappedFieldType) namesAndFieldTypes[i + 1]));
+        }
+        final SearchExecutionContext context = mock(SearchExecutionContext.class);
+        when(context.getIndexReader()).thenReturn(reader);
+        when(context.getMappingLookup()).thenReturn(mappingLookup);
+        when(context.getAllFields()).thenReturn(fields);
+        return context;
+    }
+
+    private static QuerqyQueryBuilder queryBuilder(final String queryString) {
+        final QuerqyQueryBuilder queryBuilder = new QuerqyQueryBuilder();
+        queryBuilder.setMatchingQuery(new MatchingQuery(queryString));
+        return queryBuilder;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.MappingLookup;
+import org.elasticsearch.index.query.SearchExecutionContext;
+import org.junit.Test;
+import querqy.lucene.rewrite.cache.CacheKey;
+import querqy.lucene.rewrite.cache.TermQueryCache;
+import querqy.lucene.rewrite.cache.TermQueryCacheValue;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+
+public class ShardTermQueryCacheTest {
+
+    private static final Settings ENABLED = Settings.builder()
+            .put(ShardTermQueryCache.MAX_ENTRIES_PER_SHARD.getKey(), 10).build();
+
+    @Test
+    public void testThatCacheIsDisabledByDefault() {
+        final ShardTermQueryCache cache = new ShardTermQueryCache(Settings.EMPTY);
+        assertFalse(cache.isEnabled());
+        assertNull(cache.forMappings(new Object()));
+        assertEquals(CacheStats.EMPTY, cache.getStats());
+    }
+
+    @Test
+    public void testThatValuesAreCachedAndCounted() {
+
+        final ShardTermQueryCache cache = new ShardTermQueryCache(ENABLED);
+        final Object mappings = new Object();
+        final CacheKey key = mock(CacheKey.class);
+        final TermQueryCacheValue value = mock(TermQueryCacheValue.class);
+
+        final TermQueryCache termQueryCache = cache.forMappings(mappings);
+        assertNull(termQueryCache.get(key));
+        termQueryCache.put(key, value);
+        assertSame(value, cache.forMappings(mappings).get(key));
+
+        final CacheStats stats = cache.getStats();
+        assertEquals(1L, stats.getHits());
+        assertEquals(1L, stats.getMisses());
+        assertEquals(1L, stats.getEntries());
+        assertEquals(CacheStats.UNKNOWN_SIZE, stats.getEstimatedSizeInBytes());
+
+    }
+
+    @Test
+    public void testThatNewMappingsClearTheCache() {
+
+        final ShardTermQueryCache cache = new ShardTermQueryCache(ENABLED);
+        final CacheKey key = mock(CacheKey.class);
+        final TermQueryCache oldMappings = cache.forMappings(new Object());
+        oldMappings.put(key, mock(TermQueryCacheValue.class));
+
+        final TermQueryCache newMappings = cache.forMappings(new Object());
+        assertNull(newMappings.get(key));
+        assertEquals(0L, cache.getStats().getEntries());
+
+        // a query that still uses the old mappings can't fill the cache for the new ones
+        oldMappings.put(key, mock(TermQueryCacheValue.class));
+        assertNull(newMappings.get(key));
+
+    }
+
+    @Test
+    public void testThatRequestsWithRuntimeFieldsDontUseTheCache() {
+
+        final ShardTermQueryCache cache = new ShardTermQueryCache(ENABLED);
+        final MappingLookup mappingLookup = mock(MappingLookup.class);
+        final MappedFieldType mappedField = mock(MappedFieldType.class);
+        when(mappingLookup.getFieldType("f1")).thenReturn(mappedField);
+
+        assertNotNull(cache.forContext(context(mappingLookup, "f1", mappedField)));
+        // runtime field that shadows the mapped field
+        assertNull(cache.forContext(context(mappingLookup, "f1", mock(MappedFieldType.class))));
+        // runtime field that isn't mapped
+        assertNull(cache.forContext(context(mappingLookup, "f2", mock(MappedFieldType.class))));
+
+    }
+
+    @Test
+    public void testThatSizeOfSumIsUnknownIfAnySizeIsUnknown() {
+        assertEquals(CacheStats.UNKNOWN_SIZE, new CacheStats(1L, 1L, 0L, 1L, 100L)
+                .add(new CacheStats(1L, 1L, 0L, 1L, CacheStats.UNKNOWN_SIZE)).getEstimatedSizeInBytes());
+        assertEquals(150L, new CacheStats(1L, 1L, 0L, 1L, 100L)
+                .add(new CacheStats(1L, 1L, 0L, 1L, 50L)).getEstimatedSizeInBytes());
+    }
+
+    private static SearchExecutionContext context(final MappingLookup mappingLookup, final String fieldName,
+                                                  final MappedFieldType fieldType) {
+        final Map.Entry<String, MappedFieldType> field = new AbstractMap.SimpleEntry<>(fieldName, fieldType);
+        final SearchExecutionContext context = mock(SearchExecutionContext.class);
+        when(context.getMappingLookup()).thenReturn(mappingLookup);
+        when(context.getAllFields()).thenReturn(Collections.singletonList(field));
+        when(context.mappingCacheKey()).thenReturn(mock(MappingLookup.CacheKey.class));
+        return context;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch.rewriterstore;
+
+import static org.junit.Assert.*;
+
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import querqy.elasticsearch.DummyESRewriterFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class BulkPutRewriterRequestTest {
+
+    @Test
+    public void testValidateEmptyRequest() {
+        final ActionRequestValidationException validationResult = new BulkPutRewriterRequest(Collections.emptyList())
+                .validate();
+        assertNotNull(validationResult);
+    }
+
+    @Test
+    public void testValidateDuplicateRewriterId() {
+        final BulkPutRewriterRequest request = new BulkPutRewriterRequest(Arrays.asList(
+                new PutRewriterRequest("r1", rewriterContent()),
+                new PutRewriterRequest("r2", rewriterContent()),
+                new PutRewriterRequest("r1", rewriterContent())));
+        final ActionRequestValidationException validationResult = request.validate();
+        assertNotNull(validationResult);
+        assertThat(validationResult.validationErrors(), Matchers.contains("Duplicate rewriter id: r1"));
+    }
+
+    @Test
+    public void testValidateMissingRewriterId() {
+        final BulkPutRewriterRequest request = new BulkPutRewriterRequest(Collections.singletonList(
+                new PutRewriterRequest(null, rewriterContent())));
+        assertNotNull(request.validate());
+    }
+
+    @Test
+    public void testThatRewriterDefinitionsAreNotValidatedByRequest() {
+        // the transport action validates the definitions in parallel
+        final BulkPutRewriterRequest request = new BulkPutRewriterRequest(Arrays.asList(
+                new PutRewriterRequest("r1", rewriterContent()),
+                new PutRewriterRequest("r2", Collections.emptyMap())));
+        assertNull(request.validate());
+    }
+
+    @Test
+    public void testStreamSerialization() throws IOException {
+
+        final BulkPutRewriterRequest request1 = new BulkPutRewriterRequest(Arrays.asList(
+                new PutRewriterRequest("r1", rewriterContent()),
+                new PutRewriterRequest("r2", rewriterContent())));
+
+        final BytesStreamOutput output = new BytesStreamOutput();
+        request1.writeTo(output);
+        output.flush();
+
+        final BulkPutRewriterRequest request2 = new BulkPutRewriterRequest(output.bytes().streamInput());
+
+        assertEquals(2, request2.getRequests().size());
+        for (int i = 0; i < 2; i++) {
+            assertEquals(request1.getRequests().get(i).getRewriterId(), request2.getRequests().get(i).getRewriterId());
+            assertEquals(request1.getRequests().get(i).getContent(), request2.getRequests().get(i).getContent());
+        }
+
+    }
+
+    private static Map<String, Object> rewriterContent() {
+        final Map<String, Object> content = new HashMap<>();
+        content.put("class", DummyESRewriterFactory.class.getName());
+        final Map<String, Object> config = new HashMap<>();
+        config.put("prop1", "Some value");
+        content.put("config", config);
+        return content;
+    }
+
+}
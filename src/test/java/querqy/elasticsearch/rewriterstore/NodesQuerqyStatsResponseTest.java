@@ -0,0 +1,75 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch.rewriterstore;
+
+import static org.junit.Assert.assertEquals;
+
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.VersionInformation;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.transport.TransportAddress;
+import org.junit.Test;
+import querqy.elasticsearch.RewriterStats;
+
+import java.io.IOException;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class NodesQuerqyStatsResponseTest {
+
+    @Test
+    public void testWriteToReadFromStream() throws IOException {
+
+        final NodesQuerqyStatsResponse response = new NodesQuerqyStatsResponse(new ClusterName("c1"),
+                Arrays.asList(
+                        new NodesQuerqyStatsResponse.NodeResponse(node("n1", 9234),
+                                new RewriterStats(10L, 2L, 2L, 0L, 30L, 1L, 1L, 1000L, 3,
+                                        Arrays.asList("r1", "r2"))),
+                        new NodesQuerqyStatsResponse.NodeResponse(node("n2", 9235),
+                                new RewriterStats(5L, 1L, 1L, 1L, 20L, 0L, 0L, 500L, 2,
+                                        Collections.singletonList("r1")))),
+                Collections.singletonList(new FailedNodeException("n3", "node 3 down", new SocketException())));
+
+        final BytesStreamOutput output = new BytesStreamOutput();
+        response.writeTo(output);
+        output.flush();
+
+        final NodesQuerqyStatsResponse response1 = new NodesQuerqyStatsResponse(output.bytes().streamInput());
+        assertEquals(response.getNodes(), response1.getNodes());
+        assertEquals(1, response1.failures().size());
+
+        final RewriterStats total = response1.getTotal();
+        assertEquals(15L, total.getHits());
+        assertEquals(3L, total.getMisses());
+        assertEquals(1L, total.getLoadFailures());
+        assertEquals(50L, total.getLoadTimeInMillis());
+        assertEquals(1500L, total.getEstimatedSizeInBytes());
+        assertEquals(5, total.getShardContexts());
+
+        response.decRef();
+        response1.decRef();
+    }
+
+    private static DiscoveryNode node(final String id, final int port) {
+        return new DiscoveryNode(id, id, new TransportAddress(TransportAddress.META_ADDRESS, port),
+                Collections.emptyMap(), Collections.emptySet(), VersionInformation.CURRENT);
+    }
+}
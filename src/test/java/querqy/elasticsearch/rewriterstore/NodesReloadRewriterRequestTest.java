@@ -0,0 +1,108 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch.rewriterstore;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodeRole;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.node.VersionInformation;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.transport.TransportAddress;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+public class NodesReloadRewriterRequestTest {
+
+    @Test
+    public void testThatSingleRewriterIsReloadedWithoutDocument() {
+        final NodesReloadRewriterRequest.NodeRequest nodeRequest = new NodesReloadRewriterRequest("r1")
+                .newNodeRequest();
+        assertEquals(Collections.singletonList("r1"), nodeRequest.getRewriterIds());
+        assertTrue(nodeRequest.getDocuments().isEmpty());
+        assertFalse(nodeRequest.isLoad());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThatEmptyRewriterIdsAreRejected() {
+        new NodesReloadRewriterRequest(Collections.emptyList());
+    }
+
+    @Test
+    public void testNodeRequestStreamSerialization() throws IOException {
+
+        final RewriterDocument document = new RewriterDocument("r2", 7L, 12L, 2L,
+                new BytesArray("{\"type\":\"rewriter\"}"));
+
+        final NodesReloadRewriterRequest.NodeRequest nodeRequest1 = new NodesReloadRewriterRequest(
+                Arrays.asList("r1", "r2"), Collections.singletonList(document)).setLoad(true).newNodeRequest();
+
+        final BytesStreamOutput output = new BytesStreamOutput();
+        nodeRequest1.writeTo(output);
+        output.flush();
+
+        final NodesReloadRewriterRequest.NodeRequest nodeRequest2 = new NodesReloadRewriterRequest.NodeRequest(
+                output.bytes().streamInput());
+
+        assertEquals(Arrays.asList("r1", "r2"), nodeRequest2.getRewriterIds());
+        assertTrue(nodeRequest2.isLoad());
+        assertEquals(1, nodeRequest2.getDocuments().size());
+
+        final GetResponse getResponse = nodeRequest2.getDocuments().get(0).toGetResponse();
+        assertTrue(getResponse.isExists());
+        assertEquals("r2", getResponse.getId());
+        assertEquals(7L, getResponse.getVersion());
+        assertEquals(12L, getResponse.getSeqNo());
+        assertEquals(2L, getResponse.getPrimaryTerm());
+        assertEquals("rewriter", getResponse.getSource().get("type"));
+
+    }
+
+    @Test
+    public void testThatRewriterNodesAreNodesThatCanHoldData() {
+
+        final DiscoveryNodes nodes = DiscoveryNodes.builder()
+                .add(node("master", Collections.singleton(DiscoveryNodeRole.MASTER_ROLE)))
+                .add(node("ingest", Collections.singleton(DiscoveryNodeRole.INGEST_ROLE)))
+                .add(node("coordinating", Collections.emptySet()))
+                .add(node("data", Collections.singleton(DiscoveryNodeRole.DATA_ROLE)))
+                .add(node("hot", Collections.singleton(DiscoveryNodeRole.DATA_HOT_NODE_ROLE)))
+                .localNodeId("master")
+                .build();
+
+        assertThat(Arrays.asList(nodes.resolveNodes(Constants.REWRITER_NODES)), containsInAnyOrder("data", "hot"));
+
+    }
+
+    private static DiscoveryNode node(final String id, final Set<DiscoveryNodeRole> roles) {
+        return new DiscoveryNode(id, id, new TransportAddress(TransportAddress.META_ADDRESS, 9300),
+                Collections.emptyMap(), roles, VersionInformation.CURRENT);
+    }
+
+}
@@ -25,17 +25,22 @@ import org.elasticsearch.cluster.ClusterName;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.VersionInformation;
 import org.elasticsearch.common.io.stream.ByteBufferStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.DataOutputStreamOutput;
 import org.elasticsearch.common.transport.TransportAddress;
 import org.junit.Test;
+import querqy.elasticsearch.RewriterRegistry;
 
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 public class NodesReloadRewriterResponseTest {
 
@@ -59,7 +64,8 @@ public class NodesReloadRewriterResponseTest {
                                         new DiscoveryNode("n2", "n2",
                                                 new TransportAddress(TransportAddress.META_ADDRESS, 9235),
                                                 Collections.emptyMap(), Collections.emptySet(),
-                                                VersionInformation.CURRENT), null)
+                                                VersionInformation.CURRENT), null,
+                                        RewriterRegistry.ReloadResult.UNCHANGED, 17L)
 
                         ), Collections.singletonList(new FailedNodeException("n3", "node 3 down",
                 new SocketException())));
@@ -71,8 +77,43 @@ public class NodesReloadRewriterResponseTest {
         final ByteBufferStreamInput byteInput = new ByteBufferStreamInput(ByteBuffer.wrap(bos.toByteArray()));
         final NodesReloadRewriterResponse response1 = new NodesReloadRewriterResponse(byteInput);
         assertEquals(response, response1);
+        assertEquals(17L, response1.getNodes().get(1).getReloadTimeMillis());
+        assertEquals(RewriterRegistry.ReloadResult.UNCHANGED, response1.getNodes().get(1).getReloadResult());
+        assertEquals(RewriterRegistry.ReloadResult.FAILED, response1.getNodes().get(0).getReloadResult());
 
         response.decRef();
         response1.decRef();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testRewriterResultsAreSerialized() throws IOException {
+
+        final Map<String, RewriterRegistry.ReloadResult> rewriterResults = new HashMap<>();
+        rewriterResults.put("r2", RewriterRegistry.ReloadResult.UNCHANGED);
+        rewriterResults.put("r1", RewriterRegistry.ReloadResult.RELOADED);
+
+        final NodesReloadRewriterResponse response = new NodesReloadRewriterResponse(
+                new ClusterName("c1"),
+                Collections.singletonList(
+                        new NodesReloadRewriterResponse.NodeResponse(
+                                new DiscoveryNode("n1", "n1",
+                                        new TransportAddress(TransportAddress.META_ADDRESS, 9234),
+                                        Collections.emptyMap(), Collections.emptySet(),
+                                        VersionInformation.CURRENT), null,
+                                RewriterRegistry.ReloadResult.RELOADED, 5L, rewriterResults)),
+                Collections.emptyList());
+
+        final BytesStreamOutput output = new BytesStreamOutput();
+        response.writeTo(output);
+        output.flush();
+
+        final NodesReloadRewriterResponse response1 = new NodesReloadRewriterResponse(output.bytes().streamInput());
+        assertEquals(response, response1);
+        assertEquals(rewriterResults, response1.getNodes().get(0).getRewriterResults());
+        assertEquals(Arrays.asList("r1", "r2"),
+                new ArrayList<>(response1.getNodes().get(0).getRewriterResults().keySet()));
+
+        response.decRef();
+        response1.decRef();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch.rewriterstore;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class PutRewriterAliasRequestTest {
+
+    @Test
+    public void testValidRequest() {
+        assertNull(new PutRewriterAliasRequest("products", "products_v2").validate());
+    }
+
+    @Test
+    public void testThatEmptyValuesAreRejected() {
+        final ActionRequestValidationException validationException = new PutRewriterAliasRequest("", null)
+                .validate();
+        assertNotNull(validationException);
+        assertThat(validationException.validationErrors(), contains("alias must not be empty",
+                "rewriter must not be empty"));
+    }
+
+    @Test
+    public void testThatAliasMustNotPointToItself() {
+        final ActionRequestValidationException validationException = new PutRewriterAliasRequest("products",
+                "products").validate();
+        assertNotNull(validationException);
+        assertThat(validationException.validationErrors(), contains("An alias cannot point to itself: products"));
+    }
+
+    @Test
+    public void testThatAliasesDocumentIdIsReserved() {
+        final ActionRequestValidationException validationException = new PutRewriterAliasRequest(
+                Constants.REWRITER_ALIASES_ID, "products_v2").validate();
+        assertNotNull(validationException);
+        assertThat(validationException.validationErrors(), contains("Reserved rewriter id: "
+                + Constants.REWRITER_ALIASES_ID));
+    }
+
+    @Test
+    public void testStreamSerialization() throws IOException {
+        final PutRewriterAliasRequest request1 = new PutRewriterAliasRequest("products", "products_v2");
+        final BytesStreamOutput output = new BytesStreamOutput();
+        request1.writeTo(output);
+        output.flush();
+
+        final PutRewriterAliasRequest request2 = new PutRewriterAliasRequest(output.bytes().streamInput());
+        assertEquals("products", request2.getAlias());
+        assertEquals("products_v2", request2.getRewriterId());
+    }
+}
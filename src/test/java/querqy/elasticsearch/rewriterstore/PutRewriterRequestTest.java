@@ -24,6 +24,8 @@ import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.hamcrest.Matchers;
 import org.junit.Test;
 import querqy.elasticsearch.DummyESRewriterFactory;
+import querqy.elasticsearch.ESRewriterFactory;
+import querqy.elasticsearch.rewriter.SimpleCommonRulesRewriterFactory;
 
 import java.io.IOException;
 import java.util.Collections;
@@ -49,6 +51,46 @@ public class PutRewriterRequestTest {
 
     }
 
+    @Test
+    public void testThatValidationKeepsConfiguredFactory() {
+
+        final Map<String, Object> content = new HashMap<>();
+        content.put("class", SimpleCommonRulesRewriterFactory.class.getName());
+        content.put("config", Collections.singletonMap("rules", "a =>\n SYNONYM: b"));
+
+        final PutRewriterRequest request = new PutRewriterRequest("r1", content);
+        assertNull(request.validate());
+        final ESRewriterFactory validatedFactory = request.takeValidatedFactory();
+        assertNotNull(validatedFactory);
+        assertTrue(validatedFactory.isConfigured());
+        assertNotNull(validatedFactory.createRewriterFactory(null));
+        // the request releases the factory
+        assertNull(request.takeValidatedFactory());
+
+    }
+
+    @Test
+    public void testThatValidateConfigurationHasNoSideEffects() {
+
+        final SimpleCommonRulesRewriterFactory factory = new SimpleCommonRulesRewriterFactory("r1");
+        assertNull(factory.validateConfiguration(Collections.singletonMap("rules", "a =>\n SYNONYM: b")));
+        assertFalse(factory.isConfigured());
+
+    }
+
+    @Test
+    public void testThatFactoryIsNotKeptIfValidationDoesNotConfigureIt() {
+
+        final Map<String, Object> content = new HashMap<>();
+        content.put("class", DummyESRewriterFactory.class.getName());
+        content.put("config", new HashMap<>());
+
+        final PutRewriterRequest request = new PutRewriterRequest("r1", content);
+        assertNull(request.validate());
+        assertNull(request.takeValidatedFactory());
+
+    }
+
     @Test
     public void testInvalidConfig() {
 
@@ -0,0 +1,125 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch.rewriterstore;
+
+import static querqy.elasticsearch.rewriterstore.Constants.QUERQY_INDEX_NAME;
+
+import org.elasticsearch.action.admin.indices.create.CreateIndexRequest;
+import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
+import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.client.internal.IndicesAdminClient;
+import org.elasticsearch.cluster.metadata.MappingMetadata;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.IndexNotFoundException;
+import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+import org.junit.After;
+import org.junit.Test;
+import querqy.elasticsearch.QuerqyPlugin;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class QuerqyMappingsAddAliasesIntegrationTest extends ESSingleNodeTestCase {
+
+    @Override
+    protected Collection<Class<? extends Plugin>> getPlugins() {
+        return Collections.singleton(QuerqyPlugin.class);
+    }
+
+
+    @After
+    public void deleteRewriterIndex() {
+        try {
+            client().admin().indices().prepareDelete(QUERQY_INDEX_NAME).get();
+        } catch (final IndexNotFoundException e) {
+            // Ignore
+        }
+    }
+
+    @Test
+    public void testAliasesAreAddedToV4Mapping() throws Exception {
+
+        final String v4Mapping = """
+                {
+                    "properties": {
+                      "class": {"type": "keyword"},
+                      "type": {"type": "keyword"},
+                      "version": {"type": "integer"},
+                      "info_logging": {
+                        "properties": {
+                          "sinks": {"type" : "keyword" }
+                        }
+                      },
+                      "config": {
+                        "type" : "keyword",
+                        "index": false
+                      },
+                      "config_v_003": {
+                        "type" : "keyword",
+                        "doc_values": false,
+                        "index": false
+                      },
+                      "config_v_004": {
+                        "type" : "binary"
+                      }
+                    }
+                }""";
+
+        final IndicesAdminClient indicesClient = client().admin().indices();
+
+        final CreateIndexRequestBuilder createIndexRequestBuilder = indicesClient.prepareCreate(QUERQY_INDEX_NAME);
+        final CreateIndexRequest createIndexRequest = createIndexRequestBuilder
+                .setMapping(v4Mapping)
+                .setSettings(Settings.builder().put("number_of_replicas", 2))
+                .request();
+        indicesClient.create(createIndexRequest).get();
+
+        final Map<String, Object> content = new HashMap<>();
+        content.put("class", querqy.elasticsearch.rewriter.SimpleCommonRulesRewriterFactory.class.getName());
+
+        final Map<String, Object> config = new HashMap<>();
+        config.put("rules", "k =>\nSYNONYM: c");
+        config.put("querqyParser", querqy.rewrite.commonrules.WhiteSpaceQuerqyParserFactory.class.getName());
+        content.put("config", config);
+
+        client().execute(PutRewriterAction.INSTANCE, new PutRewriterRequest("common_rules", content)).get();
+
+        final GetMappingsRequest getMappingsRequest = new GetMappingsRequest(new TimeValue(10, TimeUnit.SECONDS))
+                .indices(QUERQY_INDEX_NAME);
+        final Map<String, MappingMetadata> mappings = indicesClient.getMappings(getMappingsRequest).get().getMappings();
+        final Map<String, Object> properties = (Map<String, Object>) mappings.get(QUERQY_INDEX_NAME)
+                .getSourceAsMap().get("properties");
+        assertNotNull(properties);
+
+        final Map<String, Object> aliasesMapping = (Map<String, Object>) properties.get("aliases");
+        assertNotNull(aliasesMapping);
+        assertEquals(false, aliasesMapping.get("enabled"));
+
+        final GetResponse getResponse = client().prepareGet(QUERQY_INDEX_NAME, "common_rules").get();
+        assertTrue(getResponse.isExists());
+        final LoadRewriterConfig loadConfig = new LoadRewriterConfig("common_rules", getResponse.getSourceAsMap());
+        assertEquals(config, loadConfig.getConfig());
+
+    }
+}
@@ -118,5 +118,9 @@ public class QuerqyMappingsUpdate2To3IntegrationTest extends ESSingleNodeTestCas
         assertNotNull(config_v_003_mapping);
         assertEquals(false, config_v_003_mapping.get("doc_values"));
 
+        final Map<String, Object> config_v_004_mapping = (Map<String, Object>) properties.get("config_v_004");
+        assertNotNull(config_v_004_mapping);
+        assertEquals("binary", config_v_004_mapping.get("type"));
+
     }
 }
@@ -0,0 +1,79 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch.rewriterstore;
+
+import static org.hamcrest.collection.IsMapContaining.hasEntry;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+import org.elasticsearch.client.internal.node.NodeClient;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.xcontent.XContentType;
+import org.elasticsearch.test.rest.FakeRestRequest;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.List;
+import java.util.Map;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RestBulkPutRewriterActionTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThatMissingRewritersObjectIsRejected() {
+        new RestBulkPutRewriterAction().createRequestBuilder(restRequest("{\"r1\": {}}"), mock(NodeClient.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThatEmptyRewriterIdIsRejected() {
+        new RestBulkPutRewriterAction().createRequestBuilder(restRequest("{\"rewriters\": {\" \": {}}}"),
+                mock(NodeClient.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThatNonObjectDefinitionIsRejected() {
+        new RestBulkPutRewriterAction().createRequestBuilder(restRequest("{\"rewriters\": {\"r1\": 42}}"),
+                mock(NodeClient.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testThatRequestIsParsed() {
+
+        final RestBulkPutRewriterAction.BulkPutRewriterRequestBuilder requestBuilder = new RestBulkPutRewriterAction()
+                .createRequestBuilder(restRequest("{\"rewriters\": {\"rewriter2\": {\"config\": {\"name\":42}}, " +
+                        "\"rewriter1\": {\"config\": {\"name\":43}}}}"), mock(NodeClient.class));
+
+        final List<PutRewriterRequest> requests = requestBuilder.request().getRequests();
+        assertEquals(2, requests.size());
+
+        assertEquals("rewriter2", requests.get(0).getRewriterId());
+        assertThat((Map<String, Object>) requests.get(0).getContent().get("config"), hasEntry("name", 42));
+        assertEquals("rewriter1", requests.get(1).getRewriterId());
+        assertThat((Map<String, Object>) requests.get(1).getContent().get("config"), hasEntry("name", 43));
+
+    }
+
+    private static FakeRestRequest restRequest(final String content) {
+        return new FakeRestRequest.Builder(null)
+                .withContent(new BytesArray(content), XContentType.JSON)
+                .build();
+    }
+
+}
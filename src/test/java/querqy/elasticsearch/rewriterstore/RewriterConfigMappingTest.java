@@ -17,51 +17,89 @@
  */
 package querqy.elasticsearch.rewriterstore;
 
-import static org.hamcrest.Matchers.everyItem;
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
-import org.apache.lucene.util.BytesRef;
-import org.hamcrest.Matchers;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.xcontent.XContentFactory;
+import org.elasticsearch.xcontent.XContentType;
 import org.junit.Test;
 
-import java.util.Arrays;
-import java.util.stream.Collectors;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 public class RewriterConfigMappingTest {
 
 
+    @SuppressWarnings("unchecked")
     @Test
-    public void testStringToSourceValue() {
-        String s = "123456789ä";
-        if (new BytesRef(s).length != 11) {
-            throw new IllegalStateException("Test assumptions are wrong: unexpected encoding size: " +
-                    new BytesRef(s).length);
-        }
-        assertEquals(s, RewriterConfigMapping.stringToSourceValue(s, 20));
-        assertEquals(s, RewriterConfigMapping.stringToSourceValue(s, 11));
-
-        final Object o1 = RewriterConfigMapping.stringToSourceValue(s, 10);
-        assertTrue(o1.getClass().isArray());
-        final String[] splits = (String[]) o1;
-        assertEquals(2, splits.length);
-        assertEquals(s, splits[0] + splits[1]);
-        assertTrue(new BytesRef(splits[0]).length <= 10);
-        assertTrue(new BytesRef(splits[1]).length <= 10);
-
-        final Object o2 = RewriterConfigMapping.stringToSourceValue(s, 3);
-        assertTrue(o2.getClass().isArray());
-        final String[] arr = (String[]) o2;
-        assertThat(Arrays.stream(arr).map(BytesRef::new).map(bytesRef -> bytesRef.length).collect(Collectors.toList()),
-                everyItem(Matchers.lessThanOrEqualTo(3)));
-        assertEquals(s, String.join("", arr));
+    public void testConfigRoundTripInCurrentMapping() throws Exception {
+
+        final Map<String, Object> config = new HashMap<>();
+        config.put("rules", "a =>\n SYNONYM: b\n");
+        config.put("ignoreCase", true);
+
+        final Map<String, Object> putContent = new HashMap<>();
+        putContent.put("class", "some.Factory");
+        putContent.put("config", config);
+
+        final Map<String, Object> source = RewriterConfigMapping.toLuceneSource(putContent);
+        assertSame(RewriterConfigMapping.CURRENT, RewriterConfigMapping.getMapping(source));
+        assertTrue(source.get("config_v_004") instanceof byte[]);
+
+        final Map<String, Object> parsedSource = XContentHelper.convertToMap(
+                BytesReference.bytes(XContentFactory.contentBuilder(RewriterConfigMapping.getLuceneSourceType())
+                        .map(source)), false, RewriterConfigMapping.getLuceneSourceType()).v2();
+
+        assertEquals(config, RewriterConfigMapping.CURRENT.getConfig("r1", parsedSource));
+
+        final LoadRewriterConfig loadConfig = new LoadRewriterConfig("r1", parsedSource);
+        assertEquals("some.Factory", loadConfig.getRewriterClassName());
+        assertEquals(config, loadConfig.getConfig());
+        assertTrue(loadConfig.getConfigSizeInBytes() > 0);
+
+    }
+
+    @Test
+    public void testCurrentMappingAcceptsBase64EncodedConfig() throws Exception {
+
+        final Map<String, Object> config = Collections.singletonMap("rules", "a => \n SYNONYM: b");
+
+        final Map<String, Object> source = new HashMap<>();
+        source.put("version", RewriterConfigMapping.CURRENT_MAPPING_VERSION);
+        source.put("config_v_004", Base64.getEncoder().encodeToString(RewriterConfigMapping.toCompressedSmile(config)));
+
+        assertEquals(XContentType.SMILE, RewriterConfigMapping.CURRENT.getConfigContentType());
+        assertEquals(config, RewriterConfigMapping.CURRENT.getConfig("r1", source));
 
     }
 
-    @Test(expected = IllegalArgumentException.class)
-    public void testStringToSourceValueWithIllegalLimit() {
-        RewriterConfigMapping.stringToSourceValue("12345", 2);
+    @Test
+    public void testV3ConfigIsStillReadable() {
+
+        final Map<String, Object> source = new HashMap<>();
+        source.put("version", 3);
+        source.put("config_v_003", new String[] {"{\"ignoreCase\":", " false}"});
+
+        final RewriterConfigMapping mapping = RewriterConfigMapping.getMapping(source);
+        assertSame(RewriterConfigMapping.V3_MAPPING, mapping);
+        assertEquals(XContentType.JSON, mapping.getConfigContentType());
+        assertEquals(Collections.singletonMap("ignoreCase", false), mapping.getConfig("r1", source));
+
+    }
+
+    @Test
+    public void testMissingConfig() {
+
+        final Map<String, Object> source = new HashMap<>();
+        source.put("version", RewriterConfigMapping.CURRENT_MAPPING_VERSION);
+        assertEquals(Collections.emptyMap(), RewriterConfigMapping.CURRENT.getConfig("r1", source));
+        assertEquals(0L, new LoadRewriterConfig("r1", source).getConfigSizeInBytes());
+
     }
 
 }
@@ -0,0 +1,157 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2026 Querqy for Elasticsearch Contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package querqy.elasticsearch.rewriterstore;
+
+import static org.elasticsearch.common.transport.TransportAddress.META_ADDRESS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.client.internal.Client;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.VersionInformation;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import querqy.elasticsearch.QuerqyPlugin;
+import querqy.elasticsearch.RewriterRegistry.ReloadResult;
+import querqy.elasticsearch.RewriterShardContexts;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class TransportNodesReloadRewriterActionTest {
+
+    private final DiscoveryNode localNode = new DiscoveryNode("name1", "d1", new TransportAddress(META_ADDRESS, 0),
+            Collections.emptyMap(), Collections.emptySet(), VersionInformation.CURRENT);
+
+    private ExecutorService reloadExecutor;
+
+    @Before
+    public void setUp() {
+        reloadExecutor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        reloadExecutor.shutdownNow();
+        reloadExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testThatNodeResponseContainsResultPerRewriter() {
+
+        final RewriterShardContexts rewriterShardContexts = mock(RewriterShardContexts.class);
+        respondWith(rewriterShardContexts, "r1", ReloadResult.RELOADED);
+        respondWith(rewriterShardContexts, "r2", ReloadResult.UNCHANGED);
+
+        final TransportNodesReloadRewriterAction action = createAction(rewriterShardContexts);
+
+        final NodesReloadRewriterResponse.NodeResponse response = reload(action,
+                new NodesReloadRewriterRequest(Arrays.asList("r1", "r2")).newNodeRequest());
+
+        assertNull(response.reloadException());
+        assertEquals(ReloadResult.RELOADED, response.getReloadResult());
+        assertEquals(Map.of("r1", ReloadResult.RELOADED, "r2", ReloadResult.UNCHANGED),
+                response.getRewriterResults());
+    }
+
+    @Test
+    public void testThatRewritersAreReloadedInParallel() {
+
+        final List<String> rewriterIds = Arrays.asList("r1", "r2", "r3");
+        // every reload waits until all reloads have started, which can only happen if they run in parallel
+        final CountDownLatch started = new CountDownLatch(rewriterIds.size());
+        final Set<String> reloadThreads = ConcurrentCollections.newConcurrentSet();
+
+        final RewriterShardContexts rewriterShardContexts = mock(RewriterShardContexts.class);
+        doAnswer(invocation -> {
+            reloadThreads.add(Thread.currentThread().getName());
+            started.countDown();
+            final ActionListener<ReloadResult> listener = invocation.getArgument(4);
+            if (started.await(10, TimeUnit.SECONDS)) {
+                listener.onResponse(ReloadResult.RELOADED);
+            } else {
+                listener.onFailure(new IllegalStateException("Rewriters were not reloaded in parallel"));
+            }
+            return null;
+        }).when(rewriterShardContexts).reloadRewriter(any(), isNull(), anyBoolean(), any(), any());
+
+        final NodesReloadRewriterResponse.NodeResponse response = reload(createAction(rewriterShardContexts),
+                new NodesReloadRewriterRequest(rewriterIds).newNodeRequest());
+
+        assertNull(response.reloadException());
+        assertEquals(ReloadResult.RELOADED, response.getReloadResult());
+        assertEquals(Map.of("r1", ReloadResult.RELOADED, "r2", ReloadResult.RELOADED, "r3", ReloadResult.RELOADED),
+                response.getRewriterResults());
+        assertEquals(rewriterIds.size(), reloadThreads.size());
+        assertFalse(reloadThreads.contains(Thread.currentThread().getName()));
+
+    }
+
+    private static NodesReloadRewriterResponse.NodeResponse reload(final TransportNodesReloadRewriterAction action,
+                                                                   final NodesReloadRewriterRequest.NodeRequest request) {
+        // the test thread isn't part of the reload pool, so it can wait for the response
+        final PlainActionFuture<NodesReloadRewriterResponse.NodeResponse> future = new PlainActionFuture<>();
+        action.nodeOperationAsync(request, null, future);
+        return future.actionGet(10, TimeUnit.SECONDS);
+    }
+
+    private TransportNodesReloadRewriterAction createAction(final RewriterShardContexts rewriterShardContexts) {
+        final ThreadPool threadPool = mock(ThreadPool.class);
+        when(threadPool.executor(QuerqyPlugin.RELOAD_THREAD_POOL_NAME)).thenReturn(reloadExecutor);
+        final ClusterService clusterService = mock(ClusterService.class);
+        when(clusterService.localNode()).thenReturn(localNode);
+        return new TransportNodesReloadRewriterAction(threadPool, clusterService, mock(TransportService.class),
+                new ActionFilters(Collections.emptySet()), mock(IndicesService.class), mock(Client.class),
+                rewriterShardContexts);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void respondWith(final RewriterShardContexts rewriterShardContexts, final String rewriterId,
+                                    final ReloadResult reloadResult) {
+        doAnswer(invocation -> {
+            ((ActionListener<ReloadResult>) invocation.getArgument(4)).onResponse(reloadResult);
+            return null;
+        }).when(rewriterShardContexts).reloadRewriter(eq(rewriterId), isNull(), anyBoolean(), any(), any());
+    }
+
+}